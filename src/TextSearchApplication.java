@@ -3,10 +3,13 @@ package src;
 import src.factory.SearchModeFactory;
 import src.interfaces.SearchInterface;
 
+import java.util.Arrays;
+
 public class TextSearchApplication {
     public static void main(String[] args) {
         String mode = args.length > 0 ? args[0] : "cli";
-        SearchInterface searchMode = SearchModeFactory.createSearchMode(mode);
+        String[] options = args.length > 1 ? Arrays.copyOfRange(args, 1, args.length) : new String[0];
+        SearchInterface searchMode = SearchModeFactory.createSearchMode(mode, options);
         searchMode.run();
     }
 }
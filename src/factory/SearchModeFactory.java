@@ -2,6 +2,11 @@ package src.factory;
 
 public class SearchModeFactory {
     public static src.interfaces.SearchInterface createSearchMode(String mode) {
+        return createSearchMode(mode, new String[0]);
+    }
+
+    /** Creates a mode; {@code options} are the command-line arguments after the mode name. */
+    public static src.interfaces.SearchInterface createSearchMode(String mode, String[] options) {
         switch (mode.toLowerCase()) {
             case "gui":
                 return new src.modes.GUISearchMode();
@@ -9,8 +14,55 @@ public class SearchModeFactory {
                 return new src.modes.CLIMode();
             case "enhancedcli":
                 return new src.modes.EnhancedCLIMode();
+            case "server":
+                return createServer(options);
+            case "batch":
+                return new src.modes.BatchMode(options);
+            case "daemon":
+                return new src.modes.DaemonMode(options.length > 0 ? java.nio.file.Paths.get(options[0])
+                        : src.modes.DaemonMode.defaultSocketPath());
+            case "client":
+                return new src.modes.ClientMode(options);
+            case "loadtest":
+                return new src.modes.LoadTestClient(options);
             default:
                 throw new IllegalArgumentException("Unknown search mode: " + mode);
         }
     }
+
+    /** {@code server [port] [--bind address] [--root dir]}; loopback and the working directory by default. */
+    private static src.interfaces.SearchInterface createServer(String[] options) {
+        int port = src.modes.ServerMode.DEFAULT_PORT;
+        java.net.InetAddress bindAddress = java.net.InetAddress.getLoopbackAddress();
+        java.nio.file.Path root = java.nio.file.Paths.get("");
+        for (int i = 0; i < options.length; i++) {
+            if (options[i].equals("--bind") && i + 1 < options.length) {
+                try {
+                    bindAddress = java.net.InetAddress.getByName(options[++i]);
+                } catch (java.net.UnknownHostException e) {
+                    throw new IllegalArgumentException("Invalid bind address: " + options[i]);
+                }
+            } else if (options[i].equals("--root") && i + 1 < options.length) {
+                root = java.nio.file.Paths.get(options[++i]);
+                if (!java.nio.file.Files.isDirectory(root)) {
+                    throw new IllegalArgumentException("Not a directory: " + root);
+                }
+            } else {
+                port = parsePort(options[i]);
+            }
+        }
+        return new src.modes.ServerMode(port, bindAddress, root);
+    }
+
+    private static int parsePort(String value) {
+        try {
+            int port = Integer.parseInt(value);
+            if (port >= 0 && port <= 65535) {
+                return port;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid port: " + value);
+    }
 }
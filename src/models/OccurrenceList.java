@@ -0,0 +1,117 @@
+package src.models;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Occurrences stored column-wise: line numbers, start offsets and match lengths
+ * in parallel {@code int} arrays, plus the lines they point into. No
+ * {@link Occurrence} and no match text exist until a caller asks for one, so a
+ * result with millions of hits costs {@value #BYTES_PER_OCCURRENCE} bytes per
+ * hit. {@link #get} builds an {@code Occurrence} on demand; the column
+ * accessors read a hit without allocating.
+ */
+public final class OccurrenceList extends AbstractList<Occurrence> implements RandomAccess {
+    public static final int BYTES_PER_OCCURRENCE = 3 * Integer.BYTES;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final List<String> lines;
+    private int[] lineNumbers;
+    private int[] startIndexes;
+    private int[] lengths;
+    private int size;
+    private boolean sealed;
+
+    /** Creates an empty list whose line numbers are 1-based indexes into {@code lines}. */
+    public OccurrenceList(List<String> lines) {
+        this.lines = lines;
+        this.lineNumbers = new int[INITIAL_CAPACITY];
+        this.startIndexes = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+    }
+
+    public void add(int lineNumber, int startIndex, int length) {
+        checkOpen();
+        if (size == lineNumbers.length) {
+            grow(size + 1);
+        }
+        lineNumbers[size] = lineNumber;
+        startIndexes[size] = startIndex;
+        lengths[size] = length;
+        size++;
+    }
+
+    /** Appends every hit of {@code other}, which must point into the same lines. */
+    public void append(OccurrenceList other) {
+        checkOpen();
+        if (other.lines != lines) {
+            throw new IllegalArgumentException("Occurrences refer to different lines");
+        }
+        if (size + other.size > lineNumbers.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.lineNumbers, 0, lineNumbers, size, other.size);
+        System.arraycopy(other.startIndexes, 0, startIndexes, size, other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        size += other.size;
+    }
+
+    /** Makes the list read-only, so it can be cached and shared between threads; returns this list. */
+    public OccurrenceList seal() {
+        sealed = true;
+        return this;
+    }
+
+    @Override
+    public Occurrence get(int index) {
+        return new Occurrence(getLineNumber(index), startIndexes[index], getText(index));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public int getLineNumber(int index) {
+        checkIndex(index);
+        return lineNumbers[index];
+    }
+
+    public int getStartIndex(int index) {
+        checkIndex(index);
+        return startIndexes[index];
+    }
+
+    public int getLength(int index) {
+        checkIndex(index);
+        return lengths[index];
+    }
+
+    /** The matched text, cut from its line on each call. */
+    public String getText(int index) {
+        checkIndex(index);
+        int start = startIndexes[index];
+        return lines.get(lineNumbers[index] - 1).substring(start, start + lengths[index]);
+    }
+
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, lineNumbers.length + (lineNumbers.length >> 1));
+        lineNumbers = Arrays.copyOf(lineNumbers, capacity);
+        startIndexes = Arrays.copyOf(startIndexes, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+    }
+
+    private void checkOpen() {
+        if (sealed) {
+            throw new UnsupportedOperationException("Occurrence list is read-only");
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package src.modes;
+
+import src.interfaces.SearchInterface;
+import src.models.Occurrence;
+import src.services.CancellationToken;
+import src.services.SearchService;
+import src.services.SearchService.SearchMode;
+import src.services.SearchService.SearchResult;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Non-interactive mode for scripts and pipelines. Loads one file, then runs
+ * every line of a query file (or standard input) back to back with no prompts,
+ * writing results to standard output as text or JSON Lines. A summary of
+ * throughput and latency goes to standard error, so it never mixes with the
+ * results.
+ *
+ * <p>Each input line is a command, {@code search|count|exists <mode> <keyword>},
+ * {@code query <expression>} or {@code rank [k] <words>}, or else a bare
+ * keyword run as {@code --command} in {@code --mode}. Blank lines and lines
+ * starting with {@code #} are skipped.
+ */
+public class BatchMode implements SearchInterface {
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_RANK_LIMIT = 10;
+    private static final int ERROR_EXIT_CODE = 1;
+
+    private final String[] options;
+    private final SearchService searchService;
+
+    public BatchMode(String[] options) {
+        this.options = options;
+        this.searchService = new SearchService();
+    }
+
+    @Override
+    public void run() {
+        Settings settings;
+        try {
+            settings = Settings.parse(options);
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ERROR] " + e.getMessage());
+            printUsage();
+            System.exit(ERROR_EXIT_CODE);
+            return;
+        }
+
+        try {
+            SearchResult loaded = searchService.loadFile(settings.file);
+            System.err.printf("[Batch] Loaded %s: %d lines in %d ms%n",
+                    settings.file, loaded.getCount(), loaded.getExecutionTimeUs());
+        } catch (IOException e) {
+            System.err.println("[ERROR] " + e.getMessage());
+            System.exit(ERROR_EXIT_CODE);
+            return;
+        }
+
+        PrintStream out = new PrintStream(new BufferedOutputStream(
+                new FileOutputStream(FileDescriptor.out), OUTPUT_BUFFER_SIZE), false, StandardCharsets.UTF_8);
+        try (BufferedReader input = settings.queries == null || settings.queries.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(settings.queries), StandardCharsets.UTF_8)) {
+            Summary summary = runAll(input, out, settings);
+            out.flush();
+            summary.print();
+            if (summary.errors > 0) {
+                System.exit(ERROR_EXIT_CODE);
+            }
+        } catch (IOException e) {
+            out.flush();
+            System.err.println("[ERROR] Cannot read queries: " + e.getMessage());
+            System.exit(ERROR_EXIT_CODE);
+        }
+    }
+
+    private Summary runAll(BufferedReader input, PrintStream out, Settings settings) throws IOException {
+        Summary summary = new Summary();
+        long start = System.nanoTime();
+        String line;
+        while ((line = input.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            long queryStart = System.nanoTime();
+            SearchResult result;
+            try {
+                result = execute(line, settings);
+            } catch (IllegalArgumentException e) {
+                result = new SearchResult(false, e.getMessage(), 0, 0, 0, null);
+            }
+            summary.add(System.nanoTime() - queryStart, result);
+
+            if (settings.json) {
+                writeJson(out, line, result, settings.limit);
+            } else {
+                writeText(out, line, result, settings.limit);
+            }
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    private SearchResult execute(String line, Settings settings) {
+        String[] parts = line.split("\\s+", 3);
+        String command = parts[0].toLowerCase();
+        CancellationToken token = CancellationToken.withTimeout(settings.timeoutMillis);
+        switch (command) {
+            case "search", "count", "exists" -> {
+                if (parts.length < 3) {
+                    throw new IllegalArgumentException("Usage: " + command + " <mode> <keyword>");
+                }
+                return run(command, parts[2], parseSearchMode(parts[1]), settings.caseInsensitive, token);
+            }
+            case "query" -> {
+                return searchService.query(line.substring(command.length()).trim(), token);
+            }
+            case "rank" -> {
+                String rest = line.substring(command.length()).trim();
+                String[] rankParts = rest.split("\\s+", 2);
+                if (rankParts.length == 2 && rankParts[0].matches("\\d{1,6}")) {
+                    return searchService.rank(rankParts[1], Integer.parseInt(rankParts[0]), token);
+                }
+                return searchService.rank(rest, DEFAULT_RANK_LIMIT, token);
+            }
+            default -> {
+                return run(settings.command, line, settings.mode, settings.caseInsensitive, token);
+            }
+        }
+    }
+
+    private SearchResult run(String command, String keyword, SearchMode mode, boolean caseInsensitive,
+                             CancellationToken token) {
+        return switch (command) {
+            case "count" -> searchService.count(keyword, mode, caseInsensitive, token);
+            case "exists" -> searchService.exists(keyword, mode, caseInsensitive, token);
+            default -> searchService.search(keyword, mode, caseInsensitive, token);
+        };
+    }
+
+    private static void writeText(PrintStream out, String line, SearchResult result, int limit) {
+        if (!result.isSuccess()) {
+            out.println("# " + line + ": ERROR " + result.getMessage());
+            return;
+        }
+        out.printf("# %s: %d%s in %d us%n", line, result.getCount(),
+                result.isTruncated() ? " (partial)" : "", result.getExecutionTimeUs());
+        int[] lineNumbers = result.getLineNumbers();
+        if (lineNumbers != null) {
+            double[] scores = result.getScores();
+            for (int i = 0; i < shown(lineNumbers.length, limit); i++) {
+                out.println(scores != null
+                        ? String.format("[Line %d] score %.4f", lineNumbers[i], scores[i])
+                        : "[Line " + lineNumbers[i] + "]");
+            }
+        } else if (result.getResults() != null) {
+            List<Occurrence> occurrences = result.getResults();
+            for (int i = 0; i < shown(occurrences.size(), limit); i++) {
+                out.println(occurrences.get(i));
+            }
+        }
+    }
+
+    private static void writeJson(PrintStream out, String line, SearchResult result, int limit) {
+        StringBuilder json = new StringBuilder(128).append("{\"query\":");
+        Json.appendQuoted(json, line)
+                .append(",\"success\":").append(result.isSuccess())
+                .append(",\"count\":").append(result.getCount())
+                .append(",\"truncated\":").append(result.isTruncated())
+                .append(",\"timeUs\":").append(result.getExecutionTimeUs());
+        if (!result.isSuccess()) {
+            Json.appendQuoted(json.append(",\"message\":"), result.getMessage());
+        } else if (result.getLineNumbers() != null) {
+            int[] lineNumbers = result.getLineNumbers();
+            int shown = shown(lineNumbers.length, limit);
+            json.append(",\"lines\":").append(Arrays.toString(Arrays.copyOf(lineNumbers, shown)).replace(" ", ""));
+            if (result.getScores() != null) {
+                json.append(",\"scores\":[");
+                for (int i = 0; i < shown; i++) {
+                    json.append(i > 0 ? "," : "").append(String.format(Locale.ROOT, "%.4f", result.getScores()[i]));
+                }
+                json.append(']');
+            }
+        } else if (result.getResults() != null) {
+            List<Occurrence> occurrences = result.getResults();
+            json.append(",\"results\":[");
+            for (int i = 0; i < shown(occurrences.size(), limit); i++) {
+                Occurrence occurrence = occurrences.get(i);
+                json.append(i > 0 ? ",{\"line\":" : "{\"line\":").append(occurrence.getLineNumber())
+                        .append(",\"index\":").append(occurrence.getStartIndex()).append(",\"text\":");
+                Json.appendQuoted(json, occurrence.getFullWord()).append('}');
+            }
+            json.append(']');
+        }
+        out.println(json.append('}'));
+    }
+
+    private static int shown(int size, int limit) {
+        return limit > 0 ? Math.min(size, limit) : size;
+    }
+
+    private static SearchMode parseSearchMode(String mode) {
+        return switch (mode.toLowerCase()) {
+            case "prefix", "p" -> SearchMode.PREFIX;
+            case "substring", "sub", "s" -> SearchMode.SUBSTRING;
+            case "whole", "whole-word", "w" -> SearchMode.WHOLE_WORD;
+            default -> throw new IllegalArgumentException(
+                    "Invalid mode: '" + mode + "'. Valid modes: prefix|p, substring|sub|s, whole|w");
+        };
+    }
+
+    private static void printUsage() {
+        System.err.println("Usage: batch --file <text-file> [options]");
+        System.err.println("  --queries <file|->     Queries to run, one per line (default: stdin)");
+        System.err.println("  --mode <mode>          Mode for bare keywords: prefix|substring|whole (default: substring)");
+        System.err.println("  --command <command>    Command for bare keywords: search|count|exists (default: search)");
+        System.err.println("  --format <format>      Output: text|jsonl (default: text)");
+        System.err.println("  --limit <n>            Print at most n matches per query (default: all)");
+        System.err.println("  --timeout <ms>         Stop each query after ms milliseconds (default: none)");
+        System.err.println("  -i, --ignore-case      Case-insensitive matching");
+    }
+
+    /** Command-line options of a batch run. */
+    private static final class Settings {
+        String file;
+        String queries;
+        SearchMode mode = SearchMode.SUBSTRING;
+        String command = "search";
+        boolean json;
+        boolean caseInsensitive;
+        int limit;
+        long timeoutMillis;
+
+        static Settings parse(String[] args) {
+            Settings settings = new Settings();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "-i", "--ignore-case" -> settings.caseInsensitive = true;
+                    case "--file" -> settings.file = value(args, ++i, arg);
+                    case "--queries" -> settings.queries = value(args, ++i, arg);
+                    case "--mode" -> settings.mode = parseSearchMode(value(args, ++i, arg));
+                    case "--command" -> {
+                        settings.command = value(args, ++i, arg).toLowerCase();
+                        if (!List.of("search", "count", "exists").contains(settings.command)) {
+                            throw new IllegalArgumentException("Invalid command: '" + settings.command
+                                    + "'. Use: search, count, exists");
+                        }
+                    }
+                    case "--format" -> {
+                        String format = value(args, ++i, arg).toLowerCase();
+                        if (!format.equals("text") && !format.equals("jsonl")) {
+                            throw new IllegalArgumentException("Unknown format: '" + format + "'. Use: text, jsonl");
+                        }
+                        settings.json = format.equals("jsonl");
+                    }
+                    case "--limit" -> settings.limit = nonNegative(value(args, ++i, arg), arg);
+                    case "--timeout" -> settings.timeoutMillis = nonNegative(value(args, ++i, arg), arg);
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (settings.file == null) {
+                throw new IllegalArgumentException("Missing --file");
+            }
+            return settings;
+        }
+
+        private static String value(String[] args, int i, String option) {
+            if (i >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            return args[i];
+        }
+
+        private static int nonNegative(String value, String option) {
+            try {
+                int parsed = Integer.parseInt(value);
+                if (parsed >= 0) {
+                    return parsed;
+                }
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            throw new IllegalArgumentException("Invalid " + option + ": '" + value + "'");
+        }
+    }
+
+    /** Per-query latencies and totals, reported on standard error. */
+    private static final class Summary {
+        long[] latencies = new long[64];
+        int queries;
+        int errors;
+        long matches;
+        long elapsedNanos;
+
+        void add(long latencyNanos, SearchResult result) {
+            if (queries == latencies.length) {
+                latencies = Arrays.copyOf(latencies, queries * 2);
+            }
+            latencies[queries++] = latencyNanos;
+            if (result.isSuccess()) {
+                matches += result.getCount();
+            } else {
+                errors++;
+            }
+        }
+
+        void print() {
+            double seconds = elapsedNanos / 1e9;
+            System.err.printf("[Batch] %d queries (%d errors) in %.3f s: %.0f queries/s, %d matches%n",
+                    queries, errors, seconds, seconds > 0 ? queries / seconds : 0.0, matches);
+            if (queries > 0) {
+                long[] sorted = Arrays.copyOf(latencies, queries);
+                Arrays.sort(sorted);
+                System.err.printf("[Batch] Latency: p50 %.3f ms, p95 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                        percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99),
+                        sorted[sorted.length - 1] / 1e6);
+            }
+        }
+
+        /** Nearest-rank percentile, in milliseconds. */
+        private static double percentile(long[] sorted, int p) {
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
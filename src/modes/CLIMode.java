@@ -1,6 +1,8 @@
 package src.modes;
 
 import src.interfaces.SearchInterface;
+import src.processors.OccurrenceEncoder;
+import src.services.CancellationToken;
 import src.services.SearchService;
 import src.services.SearchService.SearchMode;
 import src.services.SearchService.SearchResult;
@@ -9,17 +11,24 @@ import src.models.Occurrence;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
+import java.util.function.Function;
 
 public class CLIMode implements SearchInterface {
     private static final String HIGHLIGHT_MARKER = "$";
     private static final int SEPARATOR_WIDTH = 70;
     private static final String CLI_PROMPT = "search-engine> ";
+    private static final int DEFAULT_RANK_LIMIT = 10;
     private final SearchService searchService;
     private final Scanner scanner;
     private boolean scannerActive;
+    private long timeoutMillis;
     
     public CLIMode() {
         this.searchService = new SearchService();
@@ -29,9 +38,11 @@ public class CLIMode implements SearchInterface {
 
     @Override
     public void run() {
+        QueryInterrupts.install();
         printWelcome();
 
         while (scannerActive) {
+            QueryInterrupts.idle();
             System.out.print(CLI_PROMPT);
 
             String input = safeReadLine();
@@ -65,8 +76,22 @@ public class CLIMode implements SearchInterface {
             handleList(input.substring(5).trim());
         } else if (lowerInput.startsWith("search ")) {
             handleSearch(input.substring(7).trim());
+        } else if (lowerInput.startsWith("replace-map ")) {
+            handleReplaceMap(input.substring(12).trim());
         } else if (lowerInput.startsWith("replace ")) {
             handleReplace(input.substring(8).trim());
+        } else if (lowerInput.startsWith("query ")) {
+            handleQuery(input.substring(6).trim());
+        } else if (lowerInput.startsWith("rank ")) {
+            handleRank(input.substring(5).trim());
+        } else if (lowerInput.startsWith("count ")) {
+            handleCount(input.substring(6).trim(), false);
+        } else if (lowerInput.startsWith("exists ")) {
+            handleCount(input.substring(7).trim(), true);
+        } else if (lowerInput.startsWith("export ")) {
+            handleExport(input.substring(7).trim());
+        } else if (lowerInput.equals("timeout") || lowerInput.startsWith("timeout ")) {
+            handleTimeout(input.substring(7).trim());
         } else {
             printError("Unknown command. Type 'help' for available commands.");
         }
@@ -117,7 +142,7 @@ public class CLIMode implements SearchInterface {
         if (!scannerActive)
             return;
 
-        SearchResult result = searchService.search(keyword, mode, caseInsensitive);
+        SearchResult result = runInterruptible(token -> searchService.search(keyword, mode, caseInsensitive, token));
         displayHighlightedResult(result, mode, caseInsensitive, keyword.length());
     }
 
@@ -144,7 +169,7 @@ public class CLIMode implements SearchInterface {
         if (!scannerActive)
             return;
 
-        SearchResult result = searchService.search(keyword, mode, caseInsensitive);
+        SearchResult result = runInterruptible(token -> searchService.search(keyword, mode, caseInsensitive, token));
         displayListResult(result, mode, caseInsensitive);
     }
 
@@ -177,10 +202,277 @@ public class CLIMode implements SearchInterface {
         if (!scannerActive)
             return;
 
-        SearchResult result = searchService.search(keyword, mode, caseInsensitive);
+        SearchResult result = runInterruptible(token -> searchService.search(keyword, mode, caseInsensitive, token));
         displayReplacedResult(result, mode, caseInsensitive, replacement);
     }
 
+    private void handleReplaceMap(String input) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+        if (input.isEmpty()) {
+            printError("Usage: replace-map <mapping-file> [output-file]");
+            return;
+        }
+
+        String[] parts = input.split("\\s+", 2);
+        String mappingPath = parts[0];
+        boolean caseInsensitive = askCaseInsensitive();
+        if (!scannerActive)
+            return;
+
+        String outputPath = parts.length > 1 ? parts[1].trim() : null;
+        if (outputPath == null) {
+            System.out.print("[INPUT] Enter output file path: ");
+            outputPath = safeReadLine();
+            if (outputPath == null || outputPath.trim().isEmpty()) {
+                printError("Invalid file path.");
+                return;
+            }
+            outputPath = outputPath.trim();
+        }
+
+        String target = outputPath;
+        SearchResult result = runInterruptible(token -> searchService.replaceMap(mappingPath, target,
+                caseInsensitive, token));
+        printSeparator();
+
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            printSeparator();
+            return;
+        }
+
+        Map<String, Long> counts = result.getReplacementCounts();
+        System.out.printf("[REPLACE-MAP] Keys: %d | Case: %s | Replaced: %d occurrences%n",
+                counts.size(), caseInsensitive ? "insensitive" : "sensitive", result.getCount());
+        System.out.printf("[TIME] Execution time: %d microseconds%n", result.getExecutionTimeUs());
+        printDivider();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            System.out.printf("%10d  %s%n", entry.getValue(), entry.getKey());
+        }
+        printDivider();
+        printSuccess(result.getMessage());
+        printSeparator();
+    }
+
+    private void handleRank(String input) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+
+        String[] parts = input.split("\\s+", 2);
+        int topK = DEFAULT_RANK_LIMIT;
+        String queryText = input;
+        if (parts.length == 2 && parts[0].matches("\\d{1,6}")) {
+            topK = Integer.parseInt(parts[0]);
+            queryText = parts[1].trim();
+        }
+        if (queryText.isEmpty()) {
+            printError("Usage: rank [k] <words>");
+            return;
+        }
+
+        int limit = topK;
+        String words = queryText;
+        SearchResult result = runInterruptible(token -> searchService.rank(words, limit, token));
+        printSeparator();
+
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            printSeparator();
+            return;
+        }
+
+        System.out.printf("[RANK] %s | Top %d | %s%n", queryText, result.getCount(), result.getMessage());
+        System.out.printf("[TIME] Execution time: %d microseconds%n", result.getExecutionTimeUs());
+        printDivider();
+
+        List<String> fileLines = searchService.getFileLines();
+        List<Occurrence> occurrences = result.getResults();
+        int[] lineNumbers = result.getLineNumbers();
+        for (int i = 0; i < lineNumbers.length; i++) {
+            int lineNum = lineNumbers[i];
+            int occIndex = 0;
+            while (occIndex < occurrences.size() && occurrences.get(occIndex).getLineNumber() < lineNum) {
+                occIndex++;
+            }
+            String line = buildProcessedLine(fileLines.get(lineNum - 1), occurrences, occIndex,
+                    lineNum, 0, ProcessMode.HIGHLIGHT, null);
+            System.out.printf("%3d. [%.3f] %4d: %s%n", i + 1, result.getScores()[i], lineNum, line);
+        }
+        if (lineNumbers.length == 0) {
+            System.out.println("[INFO] No matching lines.");
+        }
+
+        printSeparator();
+    }
+
+    private void handleCount(String input, boolean existenceOnly) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+
+        String command = existenceOnly ? "exists" : "count";
+        String[] parts = input.split("\\s+", 2);
+        if (parts.length < 2) {
+            printError("Usage: " + command + " <mode> <keyword>");
+            return;
+        }
+
+        String modeStr = parts[0];
+        String keyword = parts[1].trim();
+
+        SearchMode mode = parseSearchModeSafe(modeStr);
+        if (mode == null || !validateKeyword(keyword)) {
+            return;
+        }
+
+        boolean caseInsensitive = askCaseInsensitive();
+        if (!scannerActive)
+            return;
+
+        SearchResult result = runInterruptible(token -> existenceOnly
+                ? searchService.exists(keyword, mode, caseInsensitive, token)
+                : searchService.count(keyword, mode, caseInsensitive, token));
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            return;
+        }
+
+        if (existenceOnly) {
+            System.out.printf("[EXISTS] Mode: %s | Case: %s | %s%n",
+                    mode, caseInsensitive ? "insensitive" : "sensitive", result.getCount() > 0 ? "yes" : "no");
+        } else {
+            System.out.printf("[COUNT] Mode: %s | Case: %s | Found: %d occurrences%n",
+                    mode, caseInsensitive ? "insensitive" : "sensitive", result.getCount());
+        }
+        System.out.printf("[TIME] Execution time: %d microseconds%n", result.getExecutionTimeUs());
+    }
+
+    private void handleExport(String input) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+
+        String[] parts = input.split("\\s+", 4);
+        if (parts.length < 4) {
+            printError("Usage: export <jsonl|binary> <output-file> <mode> <keyword>");
+            return;
+        }
+
+        String format = parts[0].toLowerCase();
+        String outputPath = parts[1];
+        String keyword = parts[3].trim();
+        if (!format.matches("jsonl|json|binary|bin")) {
+            printError("Invalid format: '" + parts[0] + "'. Use: jsonl, binary");
+            return;
+        }
+
+        SearchMode mode = parseSearchModeSafe(parts[2]);
+        if (mode == null || !validateKeyword(keyword)) {
+            return;
+        }
+
+        boolean caseInsensitive = askCaseInsensitive();
+        if (!scannerActive)
+            return;
+
+        SearchResult result;
+        try (OccurrenceEncoder encoder = OccurrenceEncoder.create(format, FileChannel.open(Paths.get(outputPath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            result = runInterruptible(token -> searchService.searchTo(keyword, mode, caseInsensitive, encoder, token));
+        } catch (IOException e) {
+            printError("Failed to write " + outputPath + ": " + e.getMessage());
+            return;
+        }
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            return;
+        }
+
+        long micros = Math.max(1, result.getExecutionTimeUs());
+        System.out.printf("[EXPORT] Format: %s | Mode: %s | Case: %s | Records: %d | Bytes: %d%n",
+                format, mode, caseInsensitive ? "insensitive" : "sensitive", result.getCount(),
+                result.getFileSize());
+        System.out.printf("[TIME] Execution time: %d microseconds (%d records/s)%n",
+                result.getExecutionTimeUs(), result.getCount() * 1_000_000L / micros);
+        printSuccess(result.getMessage() + ": " + outputPath);
+    }
+
+    private void handleQuery(String queryText) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+        if (queryText.isEmpty()) {
+            printError("Usage: query <expression>");
+            return;
+        }
+
+        SearchResult result = runInterruptible(token -> searchService.query(queryText, token));
+        printSeparator();
+
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            printSeparator();
+            return;
+        }
+
+        System.out.printf("[QUERY] %s | Matched: %d lines%n", queryText, result.getCount());
+        System.out.printf("[TIME] Execution time: %d microseconds%n", result.getExecutionTimeUs());
+        printDivider();
+
+        List<String> fileLines = searchService.getFileLines();
+        List<Occurrence> occurrences = result.getResults();
+        int occIndex = 0;
+        for (int lineNum : result.getLineNumbers()) {
+            while (occIndex < occurrences.size() && occurrences.get(occIndex).getLineNumber() < lineNum) {
+                occIndex++;
+            }
+            String line = buildProcessedLine(fileLines.get(lineNum - 1), occurrences, occIndex,
+                    lineNum, 0, ProcessMode.HIGHLIGHT, null);
+            System.out.printf("%4d: %s%n", lineNum, line);
+        }
+        if (result.getCount() == 0) {
+            System.out.println("[INFO] No matching lines.");
+        }
+
+        printSeparator();
+    }
+
+    private void handleTimeout(String value) {
+        if (value.isEmpty()) {
+            System.out.println(timeoutMillis == 0 ? "[INFO] No timeout set."
+                    : "[INFO] Timeout: " + timeoutMillis + " ms");
+            return;
+        }
+        try {
+            long millis = Long.parseLong(value);
+            if (millis < 0) {
+                throw new NumberFormatException();
+            }
+            timeoutMillis = millis;
+            printSuccess(millis == 0 ? "Timeout disabled" : "Timeout set to " + millis + " ms");
+        } catch (NumberFormatException e) {
+            printError("Usage: timeout <milliseconds> (0 disables)");
+        }
+    }
+
+    /** Runs an operation that Ctrl-C or the configured timeout can stop early. */
+    private SearchResult runInterruptible(Function<CancellationToken, SearchResult> operation) {
+        CancellationToken token = QueryInterrupts.begin(timeoutMillis);
+        try {
+            SearchResult result = operation.apply(token);
+            if (result.isTruncated()) {
+                System.out.println("[WARN] " + (token.isCancelled() ? "Cancelled" : "Timed out")
+                        + " before finishing; results are partial.");
+            }
+            return result;
+        } finally {
+            QueryInterrupts.end(token);
+        }
+    }
+
     private String safeReadLine() {
         try {
             if (scanner.hasNextLine()) {
@@ -492,6 +784,15 @@ public class CLIMode implements SearchInterface {
         System.out.println("    search  <mode> <keyword>                 Search and highlight");
         System.out.println("    list    <mode> <keyword>                 List all matches");
         System.out.println("    replace <mode> <keyword> <replacement>   Find and replace");
+        System.out.println("    replace-map <mapping-file> [output]      Apply key<TAB>replacement pairs in one pass");
+        System.out.println("    query   <expression>                     Boolean query, e.g. timeout AND db NOT retry");
+        System.out.println("                                             \"exact phrase\", connection NEAR/3 refused");
+        System.out.println("    rank    [k] <words>                      Top k lines by BM25 relevance (default 10)");
+        System.out.println("    count   <mode> <keyword>                 Count matches only");
+        System.out.println("    exists  <mode> <keyword>                 Check whether any match exists");
+        System.out.println("    export  <format> <file> <mode> <kw>      Stream matches as jsonl or binary records");
+        System.out.println();
+        System.out.println("  Ctrl-C during a search stops it and returns to the prompt with partial results.");
         System.out.println();
         System.out.println("  Search Modes:");
         System.out.println("    prefix | p       Match words starting with keyword");
@@ -499,6 +800,7 @@ public class CLIMode implements SearchInterface {
         System.out.println("    whole | w        Match exact whole words only");
         System.out.println();
         System.out.println("  Other Commands:");
+        System.out.println("    timeout <ms>     Stop searches after ms milliseconds (0 disables)");
         System.out.println("    help             Show this help message");
         System.out.println("    exit             Exit the program");
         System.out.println();
@@ -0,0 +1,170 @@
+package src.modes;
+
+import src.interfaces.SearchInterface;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Thin client for {@link DaemonMode}: sends one request and copies the reply
+ * to standard output as it arrives. File paths are made absolute here, since
+ * the daemon may run in another directory. Exits with status 1 when the daemon
+ * reports an error, including one part way through a search, when a search
+ * stream is cut off before its {@code END} trailer, or when the daemon cannot
+ * be reached, so scripts can tell a failure from an empty result.
+ *
+ * <pre>
+ *   client [-s socket] [-i] load &lt;file&gt;
+ *   client [-s socket] [-i] search|count|exists &lt;file&gt; &lt;mode&gt; &lt;keyword&gt;
+ *   client [-s socket] stop
+ * </pre>
+ */
+public class ClientMode implements SearchInterface {
+    private static final int ERROR_EXIT_CODE = 1;
+
+    private final String[] options;
+
+    public ClientMode(String[] options) {
+        this.options = options;
+    }
+
+    @Override
+    public void run() {
+        Path socketPath = DaemonMode.defaultSocketPath();
+        boolean caseInsensitive = false;
+        List<String> args = new ArrayList<>();
+        for (int i = 0; i < options.length; i++) {
+            if (options[i].equals("-s") && i + 1 < options.length) {
+                socketPath = Paths.get(options[++i]);
+            } else if (options[i].equals("-i")) {
+                caseInsensitive = true;
+            } else {
+                args.add(options[i]);
+            }
+        }
+
+        String request = buildRequest(args, caseInsensitive);
+        if (request == null) {
+            System.err.println("Usage: client [-s socket] [-i] load <file>");
+            System.err.println("       client [-s socket] [-i] search|count|exists <file> <mode> <keyword>");
+            System.err.println("       client [-s socket] stop");
+            System.exit(ERROR_EXIT_CODE);
+        }
+
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socketPath))) {
+            ByteBuffer buffer = ByteBuffer.wrap((request + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.shutdownOutput();
+
+            InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+            String status = readLine(in);
+            if (!status.equals(DaemonMode.OK)) {
+                fail(status);
+            }
+            if (request.startsWith("search" + DaemonMode.FIELD_SEPARATOR)) {
+                copyResults(in);
+            } else {
+                in.transferTo(System.out);
+            }
+            System.out.flush();
+        } catch (IOException e) {
+            System.err.println("[ERROR] Cannot reach daemon at " + socketPath + ": " + e.getMessage());
+            System.err.println("        Start one with: daemon [socket]");
+            System.exit(ERROR_EXIT_CODE);
+        }
+    }
+
+    /** The request line for the arguments, or {@code null} if they do not form a request. */
+    private static String buildRequest(List<String> args, boolean caseInsensitive) {
+        if (args.isEmpty()) {
+            return null;
+        }
+        String command = args.get(0).toLowerCase();
+        switch (command) {
+            case "stop":
+                return args.size() == 1 ? command : null;
+            case "load":
+                return args.size() == 2 ? command + DaemonMode.FIELD_SEPARATOR + absolute(args.get(1)) : null;
+            case "search":
+            case "count":
+            case "exists":
+                if (args.size() < 4) {
+                    return null;
+                }
+                String keyword = String.join(" ", args.subList(3, args.size()));
+                if (keyword.contains(DaemonMode.FIELD_SEPARATOR) || keyword.contains("\n")) {
+                    return null;
+                }
+                return String.join(DaemonMode.FIELD_SEPARATOR, command, absolute(args.get(1)), args.get(2),
+                        caseInsensitive ? "1" : "0", keyword);
+            default:
+                return null;
+        }
+    }
+
+    private static String absolute(String file) {
+        return Paths.get(file).toAbsolutePath().normalize().toString();
+    }
+
+    /**
+     * Copies the JSON Lines of a search to standard output until the trailer
+     * line; records start with a brace, so any other line is the trailer.
+     */
+    private static void copyResults(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int first = -1;
+        int b;
+        while ((b = in.read()) != -1) {
+            if (first == -1) {
+                first = b;
+            }
+            if (b != '\n') {
+                line.write(b);
+                continue;
+            }
+            if (first != '{') {
+                String trailer = line.toString(StandardCharsets.UTF_8);
+                if (!trailer.startsWith(DaemonMode.END + " ")) {
+                    System.out.flush();
+                    fail(trailer);
+                }
+                return;
+            }
+            line.write(b);
+            line.writeTo(System.out);
+            line.reset();
+            first = -1;
+        }
+        System.out.flush();
+        System.err.println("[ERROR] Connection closed before the end of the results");
+        System.exit(ERROR_EXIT_CODE);
+    }
+
+    private static void fail(String status) {
+        System.err.println("[ERROR] " + (status.startsWith(DaemonMode.ERROR + " ")
+                ? status.substring(DaemonMode.ERROR.length() + 1) : "Unexpected reply: " + status));
+        System.exit(ERROR_EXIT_CODE);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }
+}
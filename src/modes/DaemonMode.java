@@ -0,0 +1,274 @@
+package src.modes;
+
+import src.interfaces.SearchInterface;
+import src.processors.OccurrenceEncoder;
+import src.services.AsyncSearchService;
+import src.services.CancellationToken;
+import src.services.SearchService;
+import src.services.SearchService.SearchMode;
+import src.services.SearchService.SearchResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Long-running process that keeps loaded files warm and answers one-shot
+ * queries over a Unix domain socket, so scripted queries skip JVM startup and
+ * indexing. Up to {@value #MAX_WARM_FILES} files stay loaded, least recently
+ * used first out; a file is reloaded when its size or modification time
+ * changes.
+ *
+ * <p>Protocol: one request per connection, a single UTF-8 line of
+ * tab-separated fields:
+ * <pre>
+ *   load    TAB file
+ *   search  TAB file TAB mode TAB ci TAB keyword
+ *   count   TAB file TAB mode TAB ci TAB keyword
+ *   exists  TAB file TAB mode TAB ci TAB keyword
+ *   stop
+ * </pre>
+ * where {@code ci} is {@code 1} for case-insensitive. The reply starts with
+ * {@code OK} or {@code ERROR <message>} on a line of its own. After {@code OK},
+ * {@code search} streams its matches as JSON Lines and ends with a trailer line,
+ * {@code END <count>} when complete or {@code ERROR <message>} when the search
+ * failed part way; a stream without a trailer was cut off. The other commands
+ * send one line with their number. See {@link ClientMode} for the client.
+ */
+public class DaemonMode implements SearchInterface {
+    static final String FIELD_SEPARATOR = "\t";
+    static final String OK = "OK";
+    static final String ERROR = "ERROR";
+    static final String END = "END";
+    private static final int MAX_WARM_FILES = 8;
+    private static final int MAX_CLIENTS = 64;
+    private static final int MAX_REQUEST_BYTES = 64 * 1024;
+
+    private final Path socketPath;
+    private final Map<Path, WarmFile> files = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, WarmFile> eldest) {
+            return size() > MAX_WARM_FILES;
+        }
+    };
+    private ServerSocketChannel server;
+
+    public DaemonMode(Path socketPath) {
+        this.socketPath = socketPath;
+    }
+
+    /** {@code text-search.sock} in the temporary directory. */
+    public static Path defaultSocketPath() {
+        return Paths.get(System.getProperty("java.io.tmpdir"), "text-search.sock");
+    }
+
+    @Override
+    public void run() {
+        try {
+            bind();
+        } catch (IOException e) {
+            System.out.println("[ERROR] Cannot listen on " + socketPath + ": " + e.getMessage());
+            return;
+        }
+        System.out.println("[Daemon] Listening on " + socketPath);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+
+        ExecutorService executor = AsyncSearchService.newHandlerExecutor("daemon-client", MAX_CLIENTS);
+        try {
+            while (true) {
+                SocketChannel client = server.accept();
+                executor.execute(() -> serve(client));
+            }
+        } catch (AsynchronousCloseException e) {
+            // stopped
+        } catch (IOException e) {
+            System.out.println("[ERROR] Daemon stopped: " + e.getMessage());
+        } finally {
+            executor.shutdown();
+            stop();
+        }
+        System.out.println("[Daemon] Stopped");
+    }
+
+    /** Binds the socket, replacing a stale socket file left by a daemon that did not shut down cleanly. */
+    private void bind() throws IOException {
+        UnixDomainSocketAddress address = UnixDomainSocketAddress.of(socketPath);
+        if (Files.exists(socketPath)) {
+            if (isListening(address)) {
+                throw new IOException("another daemon is already running");
+            }
+            Files.deleteIfExists(socketPath);
+        }
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(address);
+    }
+
+    private static boolean isListening(UnixDomainSocketAddress address) {
+        try {
+            SocketChannel.open(address).close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private synchronized void stop() {
+        try {
+            if (server != null && server.isOpen()) {
+                server.close();
+            }
+            Files.deleteIfExists(socketPath);
+        } catch (IOException e) {
+            // nothing left to clean up
+        }
+    }
+
+    private void serve(SocketChannel client) {
+        try (client) {
+            try {
+                handle(client);
+            } catch (IOException | IllegalArgumentException e) {
+                reply(client, ERROR + " " + e.getMessage(), "");
+            }
+        } catch (IOException e) {
+            // client has gone away
+        }
+    }
+
+    private void handle(SocketChannel client) throws IOException {
+        String[] fields = readRequest(client).split(FIELD_SEPARATOR, -1);
+        String command = fields[0].toLowerCase();
+        if (command.equals("stop")) {
+            reply(client, OK, "");
+            stop();
+            return;
+        }
+        if (!command.equals("load") && !command.equals("search")
+                && !command.equals("count") && !command.equals("exists")) {
+            reply(client, ERROR + " Unknown command: " + fields[0], "");
+            return;
+        }
+        if (fields.length < 2 || fields[1].isEmpty()) {
+            reply(client, ERROR + " Missing file", "");
+            return;
+        }
+        SearchService service = warm(Paths.get(fields[1]).toAbsolutePath().normalize());
+        if (command.equals("load")) {
+            reply(client, OK, service.getFileLines().size() + "\n");
+            return;
+        }
+        if (fields.length != 5 || fields[4].isEmpty()) {
+            reply(client, ERROR + " Expected: " + command + " <file> <mode> <ci> <keyword>", "");
+            return;
+        }
+        SearchMode mode = parseSearchMode(fields[2]);
+        boolean caseInsensitive = fields[3].equals("1");
+        String keyword = fields[4];
+        switch (command) {
+            case "search" -> {
+                OccurrenceEncoder encoder = OccurrenceEncoder.create("jsonl", client);
+                reply(client, OK, "");
+                SearchResult result;
+                try {
+                    result = service.searchTo(keyword, mode, caseInsensitive, encoder, CancellationToken.NONE);
+                } catch (RuntimeException e) {
+                    result = new SearchResult(false, "Search error: " + e.getMessage(), 0, 0, 0, null);
+                }
+                if (result.isSuccess() && !result.isTruncated()) {
+                    reply(client, END + " " + encoder.getRecordCount(), "");
+                } else {
+                    reply(client, ERROR + " " + result.getMessage(), "");
+                }
+            }
+            case "count" -> replyCount(client, service.count(keyword, mode, caseInsensitive));
+            default -> replyCount(client, service.exists(keyword, mode, caseInsensitive));
+        }
+    }
+
+    /** The service for a file, loading it on first use and reloading it once it changes on disk. */
+    private SearchService warm(Path file) throws IOException {
+        WarmFile entry;
+        synchronized (files) {
+            entry = files.computeIfAbsent(file, f -> new WarmFile());
+        }
+        return entry.ensureLoaded(file);
+    }
+
+    private static String readRequest(SocketChannel client) throws IOException {
+        InputStream in = Channels.newInputStream(client);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (line.size() == MAX_REQUEST_BYTES) {
+                throw new IOException("Request too long");
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8).strip();
+    }
+
+    private static void replyCount(SocketChannel client, SearchResult result) throws IOException {
+        if (result.isSuccess()) {
+            reply(client, OK, result.getCount() + "\n");
+        } else {
+            reply(client, ERROR + " " + result.getMessage(), "");
+        }
+    }
+
+    private static void reply(SocketChannel client, String status, String body) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((status.replace('\n', ' ') + "\n" + body)
+                .getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    private static SearchMode parseSearchMode(String mode) {
+        return switch (mode.toLowerCase()) {
+            case "prefix", "p" -> SearchMode.PREFIX;
+            case "substring", "sub", "s" -> SearchMode.SUBSTRING;
+            case "whole", "whole-word", "w" -> SearchMode.WHOLE_WORD;
+            default -> throw new IllegalArgumentException(
+                    "Invalid mode: '" + mode + "'. Valid modes: prefix|p, substring|sub|s, whole|w");
+        };
+    }
+
+    /** A loaded file and the size and modification time it was loaded at. */
+    private static final class WarmFile {
+        private final SearchService service = new SearchService();
+        private FileTime modified;
+        private long size = -1;
+
+        synchronized SearchService ensureLoaded(Path file) throws IOException {
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                throw new IOException("File not found: " + file);
+            }
+            if (attributes.size() != size || !attributes.lastModifiedTime().equals(modified)) {
+                service.loadFile(file.toString());
+                size = attributes.size();
+                modified = attributes.lastModifiedTime();
+            }
+            return service;
+        }
+    }
+}
@@ -1,20 +1,28 @@
 package src.modes;
 
 import src.interfaces.SearchInterface;
+import src.processors.OccurrenceEncoder;
+import src.services.CancellationToken;
 import src.services.SearchService;
 import src.services.SearchService.SearchMode;
 import src.services.SearchService.SearchResult;
 import src.models.Occurrence;
+import src.models.OccurrenceList;
 
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -47,6 +55,10 @@ public class EnhancedCLIMode implements SearchInterface {
 
     private static final int DEFAULT_CONTEXT_LINES = 0;
 
+    private static final int DEFAULT_RANK_LIMIT = 10;
+
+    private static final int DEFAULT_PAGE_ROWS = 40;
+
     private static final String CMD_EXIT = "exit";
     private static final String CMD_QUIT = "quit";
     private static final String CMD_Q = "q";
@@ -58,10 +70,20 @@ public class EnhancedCLIMode implements SearchInterface {
     private static final String CMD_LIST = "list ";
     private static final String CMD_SEARCH = "search ";
     private static final String CMD_REPLACE = "replace ";
+    private static final String CMD_REPLACE_MAP = "replace-map ";
     private static final String CMD_CONTEXT = "context ";
     private static final String CMD_LINES_ON = "lines on";
     private static final String CMD_LINES_OFF = "lines off";
     private static final String CMD_STATS = "stats";
+    private static final String CMD_QUERY = "query ";
+    private static final String CMD_RANK = "rank ";
+    private static final String CMD_COUNT = "count ";
+    private static final String CMD_EXISTS = "exists ";
+    private static final String CMD_EXPORT = "export ";
+    private static final String CMD_TIMEOUT = "timeout";
+    private static final String CMD_UNDO = "undo";
+    private static final String CMD_REDO = "redo";
+    private static final String CMD_PAGER = "pager";
 
     @FunctionalInterface
     private interface SaveAction {
@@ -78,19 +100,27 @@ public class EnhancedCLIMode implements SearchInterface {
 
     private boolean showLineNumbers;
 
+    private long timeoutMillis;
+
+    /** Rows per pager screen; 0 when the pager is off. */
+    private int pageRows;
+
     public EnhancedCLIMode() {
         this.searchService = new SearchService();
         this.scanner = new Scanner(System.in);
         this.scannerActive = true;
         this.contextLines = DEFAULT_CONTEXT_LINES;
         this.showLineNumbers = true;
+        this.pageRows = System.console() != null ? defaultPageRows() : 0;
     }
 
     @Override
     public void run() {
+        QueryInterrupts.install();
         printWelcome();
 
         while (scannerActive) {
+            QueryInterrupts.idle();
             System.out.print(colorize(CLI_PROMPT, CYAN + BOLD));
 
             String input = safeReadLine();
@@ -125,6 +155,8 @@ public class EnhancedCLIMode implements SearchInterface {
             handleList(input.substring(CMD_LIST.length()).trim());
         } else if (lowerInput.startsWith(CMD_SEARCH)) {
             handleSearch(input.substring(CMD_SEARCH.length()).trim());
+        } else if (lowerInput.startsWith(CMD_REPLACE_MAP)) {
+            handleReplaceMap(input.substring(CMD_REPLACE_MAP.length()).trim());
         } else if (lowerInput.startsWith(CMD_REPLACE)) {
             handleReplace(input.substring(CMD_REPLACE.length()).trim());
         } else if (lowerInput.startsWith(CMD_CONTEXT)) {
@@ -137,6 +169,24 @@ public class EnhancedCLIMode implements SearchInterface {
             printSuccess("Line numbers disabled.");
         } else if (lowerInput.equals(CMD_STATS)) {
             handleStats();
+        } else if (lowerInput.startsWith(CMD_QUERY)) {
+            handleQuery(input.substring(CMD_QUERY.length()).trim());
+        } else if (lowerInput.startsWith(CMD_RANK)) {
+            handleRank(input.substring(CMD_RANK.length()).trim());
+        } else if (lowerInput.startsWith(CMD_COUNT)) {
+            handleCount(input.substring(CMD_COUNT.length()).trim(), false);
+        } else if (lowerInput.startsWith(CMD_EXISTS)) {
+            handleCount(input.substring(CMD_EXISTS.length()).trim(), true);
+        } else if (lowerInput.startsWith(CMD_EXPORT)) {
+            handleExport(input.substring(CMD_EXPORT.length()).trim());
+        } else if (lowerInput.equals(CMD_TIMEOUT) || lowerInput.startsWith(CMD_TIMEOUT + " ")) {
+            handleTimeout(input.substring(CMD_TIMEOUT.length()).trim());
+        } else if (lowerInput.equals(CMD_PAGER) || lowerInput.startsWith(CMD_PAGER + " ")) {
+            handlePager(lowerInput.substring(CMD_PAGER.length()).trim());
+        } else if (lowerInput.equals(CMD_UNDO)) {
+            handleUndo(true);
+        } else if (lowerInput.equals(CMD_REDO)) {
+            handleUndo(false);
         } else {
             printError("Unknown command: '" + input + "'. Type 'help' for available commands.");
         }
@@ -172,6 +222,38 @@ public class EnhancedCLIMode implements SearchInterface {
         }
     }
 
+    private void handleTimeout(String value) {
+        if (value.isEmpty()) {
+            printInfo(timeoutMillis == 0 ? "No timeout set." : "Timeout: " + timeoutMillis + " ms");
+            return;
+        }
+        try {
+            long millis = Long.parseLong(value);
+            if (millis < 0) {
+                throw new NumberFormatException();
+            }
+            timeoutMillis = millis;
+            printSuccess(millis == 0 ? "Timeout disabled." : "Timeout set to " + millis + " ms.");
+        } catch (NumberFormatException e) {
+            printError("Invalid number. Usage: timeout <milliseconds> (0 disables)");
+        }
+    }
+
+    /** Runs an operation that Ctrl-C or the configured timeout can stop early. */
+    private SearchResult runInterruptible(Function<CancellationToken, SearchResult> operation) {
+        CancellationToken token = QueryInterrupts.begin(timeoutMillis);
+        try {
+            SearchResult result = operation.apply(token);
+            if (result.isTruncated()) {
+                System.out.println(colorize("[Partial] ", YELLOW + BOLD)
+                        + (token.isCancelled() ? "Cancelled" : "Timed out") + " before finishing.");
+            }
+            return result;
+        } finally {
+            QueryInterrupts.end(token);
+        }
+    }
+
     private void handleContext(String input) {
         try {
             int lines = Integer.parseInt(input.trim());
@@ -186,6 +268,43 @@ public class EnhancedCLIMode implements SearchInterface {
         }
     }
 
+    private void handlePager(String value) {
+        if (value.isEmpty()) {
+            printInfo(pageRows == 0 ? "Pager is off." : "Pager is on, " + pageRows + " lines per page.");
+            return;
+        }
+        if (value.equals("on")) {
+            pageRows = defaultPageRows();
+        } else if (value.equals("off")) {
+            pageRows = 0;
+        } else {
+            try {
+                int rows = Integer.parseInt(value);
+                if (rows <= 0) {
+                    throw new NumberFormatException();
+                }
+                pageRows = rows;
+            } catch (NumberFormatException e) {
+                printError("Usage: pager on|off|<lines per page>");
+                return;
+            }
+        }
+        printSuccess(pageRows == 0 ? "Pager disabled." : "Pager enabled, " + pageRows + " lines per page.");
+    }
+
+    /** One screen less the prompt line, from {@code LINES} when the shell exports it. */
+    private static int defaultPageRows() {
+        try {
+            String lines = System.getenv("LINES");
+            if (lines != null && Integer.parseInt(lines.trim()) > 2) {
+                return Integer.parseInt(lines.trim()) - 1;
+            }
+        } catch (NumberFormatException e) {
+            // fall back to the default
+        }
+        return DEFAULT_PAGE_ROWS;
+    }
+
     private void handleStats() {
         if (!validateFileLoaded()) {
             return;
@@ -199,6 +318,19 @@ public class EnhancedCLIMode implements SearchInterface {
         System.out.printf("  %sLines:%s     %s%d%s%n", DIM, RESET, CYAN, stats.lineCount, RESET);
         System.out.printf("  %sChars:%s     %s%d%s%n", DIM, RESET, CYAN, stats.characterCount, RESET);
         System.out.printf("  %sSize:%s      %s%d bytes%s%n", DIM, RESET, CYAN, stats.fileSizeBytes, RESET);
+        var revision = searchService.getRevision();
+        System.out.printf("  %sRevision:%s  %s%d%s (%d pieces)%n", DIM, RESET, CYAN, revision.getId(), RESET,
+                revision.getPieceCount());
+        printDivider();
+
+        var cache = searchService.getCacheStats();
+        System.out.println(colorize("  QUERY CACHE", BOLD + CYAN));
+        System.out.printf("  %sEntries:%s   %s%d%s (%d / %d KB)%n", DIM, RESET, CYAN, cache.entryCount, RESET,
+                cache.weightBytes / 1024, cache.maxWeightBytes / 1024);
+        System.out.printf("  %sHits:%s      %s%d%s | %sMisses:%s %s%d%s | %sEvictions:%s %s%d%s%n",
+                DIM, RESET, GREEN, cache.hits, RESET,
+                DIM, RESET, YELLOW, cache.misses, RESET,
+                DIM, RESET, YELLOW, cache.evictions, RESET);
         printSeparator();
     }
 
@@ -236,7 +368,7 @@ public class EnhancedCLIMode implements SearchInterface {
         if (!scannerActive)
             return;
 
-        SearchResult result = searchService.search(pattern, mode, caseInsensitive);
+        SearchResult result = runInterruptible(token -> searchService.search(pattern, mode, caseInsensitive, token));
         displayHighlightedResult(result, mode.toString(), pattern.length());
     }
 
@@ -297,7 +429,7 @@ public class EnhancedCLIMode implements SearchInterface {
         if (!scannerActive)
             return;
 
-        SearchResult result = searchService.search(keyword, mode, caseInsensitive);
+        SearchResult result = runInterruptible(token -> searchService.search(keyword, mode, caseInsensitive, token));
         displayListResult(result, mode.toString(), caseInsensitive);
     }
 
@@ -330,6 +462,279 @@ public class EnhancedCLIMode implements SearchInterface {
         }
     }
 
+    private void handleCount(String input, boolean existenceOnly) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+
+        String command = existenceOnly ? "exists" : "count";
+        String[] parts = input.split("\\s+", 2);
+        if (parts.length < 2) {
+            printError("Usage: " + command + " <mode> <keyword>");
+            return;
+        }
+
+        String modeStr = parts[0].toLowerCase();
+        String keyword = parts[1].trim();
+
+        SearchMode mode = parseSearchModeSafe(modeStr);
+        if (mode == null || !validateKeyword(keyword)) {
+            return;
+        }
+
+        boolean caseInsensitive = askCaseInsensitive();
+        if (!scannerActive)
+            return;
+
+        SearchResult result = runInterruptible(token -> existenceOnly
+                ? searchService.exists(keyword, mode, caseInsensitive, token)
+                : searchService.count(keyword, mode, caseInsensitive, token));
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            return;
+        }
+
+        if (existenceOnly) {
+            boolean found = result.getCount() > 0;
+            System.out.printf("%s[EXISTS]%s Mode: %s%s%s | Case: %s | %s%n",
+                    BOLD, RESET,
+                    CYAN, mode, RESET,
+                    caseInsensitive ? "insensitive" : "sensitive",
+                    found ? colorize("yes", GREEN + BOLD) : colorize("no", RED + BOLD));
+        } else {
+            System.out.printf("%s[COUNT]%s Mode: %s%s%s | Case: %s | Found: %s%d%s occurrences%n",
+                    BOLD, RESET,
+                    CYAN, mode, RESET,
+                    caseInsensitive ? "insensitive" : "sensitive",
+                    GREEN + BOLD, result.getCount(), RESET);
+        }
+        System.out.printf("%s[TIME]%s %s%d%s microseconds%n", DIM, RESET, YELLOW, result.getExecutionTimeUs(), RESET);
+    }
+
+    private void handleExport(String input) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+
+        String[] parts = input.split("\\s+", 4);
+        if (parts.length < 4) {
+            printError("Usage: export <jsonl|binary> <output-file> <mode> <keyword>");
+            return;
+        }
+
+        String format = parts[0].toLowerCase();
+        String outputPath = parts[1];
+        String keyword = parts[3].trim();
+        if (!format.matches("jsonl|json|binary|bin")) {
+            printError("Invalid format: '" + parts[0] + "'. Use: jsonl, binary");
+            return;
+        }
+
+        SearchMode mode = parseSearchModeSafe(parts[2].toLowerCase());
+        if (mode == null || !validateKeyword(keyword)) {
+            return;
+        }
+
+        boolean caseInsensitive = askCaseInsensitive();
+        if (!scannerActive)
+            return;
+
+        SearchResult result;
+        try (OccurrenceEncoder encoder = OccurrenceEncoder.create(format, FileChannel.open(Paths.get(outputPath),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))) {
+            result = runInterruptible(token -> searchService.searchTo(keyword, mode, caseInsensitive, encoder, token));
+        } catch (IOException e) {
+            printError("Failed to write " + outputPath + ": " + e.getMessage());
+            return;
+        }
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            return;
+        }
+
+        long micros = Math.max(1, result.getExecutionTimeUs());
+        System.out.printf("%s[EXPORT]%s Format: %s%s%s | Mode: %s%s%s | Records: %s%d%s | Bytes: %d%n",
+                BOLD, RESET,
+                CYAN, format, RESET,
+                CYAN, mode, RESET,
+                GREEN + BOLD, result.getCount(), RESET,
+                result.getFileSize());
+        System.out.printf("%s[TIME]%s %s%d%s microseconds (%d records/s)%n", DIM, RESET, YELLOW,
+                result.getExecutionTimeUs(), RESET, result.getCount() * 1_000_000L / micros);
+        printSuccess(result.getMessage() + ": " + outputPath);
+    }
+
+    private void handleQuery(String queryText) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+        if (queryText.isEmpty()) {
+            printError("Usage: query <expression>");
+            printInfo("Operators: AND, OR, NOT, \"phrase\", a NEAR/k b, ( )");
+            return;
+        }
+
+        SearchResult result = runInterruptible(token -> searchService.query(queryText, token));
+        printSeparator();
+
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            printSeparator();
+            return;
+        }
+
+        System.out.printf("%s[QUERY]%s %s%s%s | Matched: %s%d%s lines%n",
+                BOLD, RESET,
+                YELLOW, queryText, RESET,
+                GREEN + BOLD, result.getCount(), RESET);
+        System.out.printf("%s[TIME]%s %s%d%s microseconds%n", DIM, RESET, YELLOW, result.getExecutionTimeUs(), RESET);
+        printDivider();
+
+        List<String> fileLines = searchService.getFileLines();
+        List<Occurrence> occurrences = result.getResults();
+        int occIndex = 0;
+        for (int lineNum : result.getLineNumbers()) {
+            String line = fileLines.get(lineNum - 1);
+            String linePrefix = showLineNumbers ? formatLineNumber(lineNum) : "";
+
+            while (occIndex < occurrences.size() && occurrences.get(occIndex).getLineNumber() < lineNum) {
+                occIndex++;
+            }
+
+            StringBuilder highlighted = new StringBuilder();
+            int charIndex = 0;
+            while (occIndex < occurrences.size() && occurrences.get(occIndex).getLineNumber() == lineNum) {
+                Occurrence occ = occurrences.get(occIndex);
+                highlighted.append(line, charIndex, occ.getStartIndex());
+                highlighted.append(RED + BOLD).append(occ.getFullWord()).append(RESET);
+                charIndex = occ.getStartIndex() + occ.getFullWord().length();
+                occIndex++;
+            }
+            highlighted.append(line, charIndex, line.length());
+
+            System.out.println(linePrefix + highlighted);
+        }
+
+        printSeparator();
+        printMatchSummary(result.getCount());
+    }
+
+    private void handleReplaceMap(String input) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+        if (input.isEmpty()) {
+            printError("Usage: replace-map <mapping-file> [output-file]");
+            return;
+        }
+
+        String[] parts = input.split("\\s+", 2);
+        String mappingPath = parts[0];
+        boolean caseInsensitive = askCaseInsensitive();
+        if (!scannerActive)
+            return;
+
+        String outputPath = parts.length > 1 ? parts[1].trim() : null;
+        if (outputPath == null) {
+            System.out.print(colorize("[>] ", CYAN) + "Enter output file path: ");
+            outputPath = safeReadLine();
+            if (outputPath == null || outputPath.trim().isEmpty()) {
+                printError("Invalid file path.");
+                return;
+            }
+            outputPath = outputPath.trim();
+        }
+
+        String target = outputPath;
+        SearchResult result = runInterruptible(token -> searchService.replaceMap(mappingPath, target,
+                caseInsensitive, token));
+        printSeparator();
+
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            printSeparator();
+            return;
+        }
+
+        Map<String, Long> counts = result.getReplacementCounts();
+        System.out.printf("%s[REPLACE-MAP]%s Keys: %s%d%s | Case: %s%s%s | Replaced: %s%d%s occurrences%n",
+                BOLD, RESET,
+                CYAN, counts.size(), RESET,
+                CYAN, caseInsensitive ? "insensitive" : "sensitive", RESET,
+                GREEN + BOLD, result.getCount(), RESET);
+        System.out.printf("%s[TIME]%s %s%d%s microseconds%n", DIM, RESET, YELLOW, result.getExecutionTimeUs(), RESET);
+        printDivider();
+        for (Map.Entry<String, Long> entry : counts.entrySet()) {
+            String color = entry.getValue() > 0 ? GREEN : DIM;
+            System.out.printf("  %s%10d%s  %s%n", color, entry.getValue(), RESET, entry.getKey());
+        }
+        printSeparator();
+        printSuccess(result.getMessage());
+    }
+
+    private void handleRank(String input) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+
+        String[] parts = input.split("\\s+", 2);
+        int topK = DEFAULT_RANK_LIMIT;
+        String queryText = input;
+        if (parts.length == 2 && parts[0].matches("\\d{1,6}")) {
+            topK = Integer.parseInt(parts[0]);
+            queryText = parts[1].trim();
+        }
+        if (queryText.isEmpty()) {
+            printError("Usage: rank [k] <words>");
+            return;
+        }
+
+        int limit = topK;
+        String words = queryText;
+        SearchResult result = runInterruptible(token -> searchService.rank(words, limit, token));
+        printSeparator();
+
+        if (!result.isSuccess()) {
+            printError(result.getMessage());
+            printSeparator();
+            return;
+        }
+
+        System.out.printf("%s[RANK]%s %s%s%s | Top %s%d%s | %s%n",
+                BOLD, RESET,
+                YELLOW, queryText, RESET,
+                GREEN + BOLD, result.getCount(), RESET,
+                result.getMessage());
+        System.out.printf("%s[TIME]%s %s%d%s microseconds%n", DIM, RESET, YELLOW, result.getExecutionTimeUs(), RESET);
+        printDivider();
+
+        List<String> fileLines = searchService.getFileLines();
+        List<Occurrence> occurrences = result.getResults();
+        int[] lineNumbers = result.getLineNumbers();
+        for (int i = 0; i < lineNumbers.length; i++) {
+            int lineNum = lineNumbers[i];
+            String line = fileLines.get(lineNum - 1);
+            String linePrefix = showLineNumbers ? formatLineNumber(lineNum) : "";
+
+            StringBuilder highlighted = new StringBuilder();
+            int charIndex = 0;
+            for (Occurrence occ : occurrences) {
+                if (occ.getLineNumber() == lineNum) {
+                    highlighted.append(line, charIndex, occ.getStartIndex());
+                    highlighted.append(RED + BOLD).append(occ.getFullWord()).append(RESET);
+                    charIndex = occ.getStartIndex() + occ.getFullWord().length();
+                }
+            }
+            highlighted.append(line, charIndex, line.length());
+
+            System.out.printf("  %s%3d.%s %s%7.3f%s %s%s%n",
+                    DIM, i + 1, RESET, YELLOW, result.getScores()[i], RESET, linePrefix, highlighted);
+        }
+
+        printSeparator();
+        printMatchSummary(lineNumbers.length);
+    }
+
     private void handleReplace(String input) {
         if (!validateFileLoaded()) {
             return;
@@ -364,8 +769,22 @@ public class EnhancedCLIMode implements SearchInterface {
         if (!scannerActive)
             return;
 
-        SearchResult result = searchService.search(pattern, mode, caseInsensitive);
-        displayReplacedResult(result, mode.toString(), replacement);
+        List<String> fileLines = searchService.getFileLines();
+        SearchResult result = runInterruptible(token -> searchService.search(pattern, mode, caseInsensitive, token));
+        displayReplacedResult(fileLines, result, mode.toString(), replacement);
+        if (!result.isSuccess() || result.getCount() == 0 || result.isTruncated()) {
+            return;
+        }
+
+        SearchResult applied = searchService.applyReplace(result.getResults(), fileLines, replacement);
+        if (!applied.isSuccess()) {
+            printError(applied.getMessage());
+        } else if (applied.isTruncated()) {
+            printInfo(applied.getMessage());
+        } else {
+            printSuccess(applied.getMessage() + ". Use 'undo' to revert.");
+            promptSaveDocument();
+        }
     }
 
     private void handleRegexReplace(String patternStr, String replacement) {
@@ -378,23 +797,51 @@ public class EnhancedCLIMode implements SearchInterface {
             Pattern pattern = Pattern.compile(patternStr, flags);
 
             List<String> fileLines = searchService.getFileLines();
-            List<String> replacedLines = new ArrayList<>();
+            int[] changedLines = new int[16];
+            List<String> changedTexts = new ArrayList<>();
             int matchCount = 0;
 
-            for (String line : fileLines) {
-                Matcher matcher = pattern.matcher(line);
+            for (int i = 0; i < fileLines.size(); i++) {
+                Matcher matcher = pattern.matcher(fileLines.get(i));
                 int count = 0;
                 while (matcher.find())
                     count++;
+                if (count == 0)
+                    continue;
                 matchCount += count;
 
-                replacedLines.add(pattern.matcher(line).replaceAll(replacement));
+                if (changedTexts.size() == changedLines.length) {
+                    changedLines = Arrays.copyOf(changedLines, changedLines.length * 2);
+                }
+                changedLines[changedTexts.size()] = i;
+                changedTexts.add(matcher.replaceAll(replacement));
             }
+            changedLines = Arrays.copyOf(changedLines, changedTexts.size());
 
-            displayRegexReplaceResult(replacedLines, matchCount, patternStr, replacement, caseInsensitive);
+            displayRegexReplaceResult(fileLines, changedLines, changedTexts, matchCount, patternStr, replacement);
 
+            if (searchService.editLines(changedLines, changedTexts)) {
+                printSuccess("Replaced in " + changedTexts.size() + " lines (revision "
+                        + searchService.getRevision().getId() + "). Use 'undo' to revert.");
+                promptSaveDocument();
+            }
         } catch (PatternSyntaxException e) {
             printError("Invalid regex pattern: " + e.getDescription());
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            printError("Invalid replacement: " + e.getMessage());
+        }
+    }
+
+    private void handleUndo(boolean undo) {
+        if (!validateFileLoaded()) {
+            return;
+        }
+
+        if (undo ? searchService.undo() : searchService.redo()) {
+            printSuccess((undo ? "Reverted to revision " : "Restored revision ")
+                    + searchService.getRevision().getId() + ".");
+        } else {
+            printInfo(undo ? "Nothing to undo." : "Nothing to redo.");
         }
     }
 
@@ -566,128 +1013,115 @@ public class EnhancedCLIMode implements SearchInterface {
         }
     }
 
+    /**
+     * Prints the lines around the occurrences with the matches highlighted. The
+     * context windows are merged into sorted line intervals first, and printing
+     * jumps from one interval to the next, so the cost depends on the hits and
+     * the context size rather than on the file. Without context, or without
+     * hits, the whole file is one interval.
+     */
     private void displayHighlightedFile(List<String> fileLines, List<Occurrence> occurrences) {
-        
-        Set<Integer> linesToShow = calculateLinesToShow(occurrences, fileLines.size());
-
-        int occIndex = 0;
-        int lastPrintedLine = 0;
-
-        for (int lineNum = 1; lineNum <= fileLines.size(); lineNum++) {
-            
-            if (contextLines > 0 && !linesToShow.contains(lineNum)) {
-                continue;
-            }
-
-            if (contextLines > 0 && lastPrintedLine > 0 && lineNum > lastPrintedLine + 1) {
-                System.out.println(colorize("    ...", DIM));
-            }
-            lastPrintedLine = lineNum;
-
-            String line = fileLines.get(lineNum - 1);
-            String linePrefix = showLineNumbers ? formatLineNumber(lineNum) : "";
-
-            if (occurrences == null || occIndex >= occurrences.size() ||
-                    occurrences.get(occIndex).getLineNumber() != lineNum) {
-                System.out.println(linePrefix + line);
-                continue;
-            }
-
-            StringBuilder result = new StringBuilder();
-            int charIndex = 0;
-            int currentOccIndex = occIndex;
-
-            while (charIndex < line.length()) {
-                if (currentOccIndex < occurrences.size() &&
-                        occurrences.get(currentOccIndex).getLineNumber() == lineNum &&
-                        occurrences.get(currentOccIndex).getStartIndex() == charIndex) {
-
-                    Occurrence occ = occurrences.get(currentOccIndex);
-                    int matchLen = occ.getFullWord().length();
-
-                    result.append(RED + BOLD);
-                    result.append(line, charIndex, charIndex + matchLen);
-                    result.append(RESET);
-
-                    charIndex += matchLen;
-                    currentOccIndex++;
-                } else {
-                    result.append(line.charAt(charIndex));
-                    charIndex++;
-                }
-            }
-
-            System.out.println(linePrefix + result.toString());
-
-            while (occIndex < occurrences.size() &&
-                    occurrences.get(occIndex).getLineNumber() == lineNum) {
-                occIndex++;
-            }
-        }
+        int[] intervals = calculateIntervals(occurrences, fileLines.size());
+        printView(new HighlightedView(fileLines, intervals, toOccurrenceList(fileLines, occurrences), showLineNumbers));
     }
 
-    private Set<Integer> calculateLinesToShow(List<Occurrence> occurrences, int totalLines) {
-        Set<Integer> lines = new TreeSet<>();
-
+    /**
+     * Line intervals to print, as {@code [start1, end1, start2, end2, ...]}
+     * (1-based, inclusive, ascending). Each occurrence contributes
+     * {@code contextLines} lines either side; windows that overlap or touch are
+     * merged. Occurrences must be in line order, as searches return them.
+     */
+    private int[] calculateIntervals(List<Occurrence> occurrences, int totalLines) {
+        if (totalLines == 0) {
+            return new int[0];
+        }
         if (contextLines == 0 || occurrences == null || occurrences.isEmpty()) {
-            for (int i = 1; i <= totalLines; i++) {
-                lines.add(i);
-            }
-            return lines;
+            return new int[] { 1, totalLines };
         }
 
-        for (Occurrence occ : occurrences) {
-            int line = occ.getLineNumber();
+        int[] intervals = new int[16];
+        int size = 0;
+        for (int i = 0; i < occurrences.size(); i++) {
+            int line = occurrences.get(i).getLineNumber();
             int start = Math.max(1, line - contextLines);
             int end = Math.min(totalLines, line + contextLines);
-
-            for (int i = start; i <= end; i++) {
-                lines.add(i);
+            if (size > 0 && start <= intervals[size - 1] + 1) {
+                intervals[size - 1] = Math.max(intervals[size - 1], end);
+                continue;
+            }
+            if (size == intervals.length) {
+                intervals = Arrays.copyOf(intervals, size * 2);
             }
+            intervals[size++] = start;
+            intervals[size++] = end;
         }
-
-        return lines;
+        return Arrays.copyOf(intervals, size);
     }
 
     private void displayRegexHighlightedFile(List<String> fileLines, List<RegexMatch> matches) {
-        int matchIndex = 0;
-
-        for (int lineNum = 1; lineNum <= fileLines.size(); lineNum++) {
-            String line = fileLines.get(lineNum - 1);
-            String linePrefix = showLineNumbers ? formatLineNumber(lineNum) : "";
+        int[] intervals = fileLines.isEmpty() ? new int[0] : new int[] { 1, fileLines.size() };
+        OccurrenceList spans = new OccurrenceList(fileLines);
+        for (RegexMatch match : matches) {
+            spans.add(match.lineNum(), match.startIndex(), match.length());
+        }
+        printView(new HighlightedView(fileLines, intervals, spans.seal(), showLineNumbers));
+    }
 
-            if (matchIndex >= matches.size() || matches.get(matchIndex).lineNum() != lineNum) {
-                System.out.println(linePrefix + line);
-                continue;
+    /** The occurrences in columnar form, so rendering reads them without allocating. */
+    private static OccurrenceList toOccurrenceList(List<String> fileLines, List<Occurrence> occurrences) {
+        if (occurrences instanceof OccurrenceList list) {
+            return list;
+        }
+        OccurrenceList spans = new OccurrenceList(fileLines);
+        if (occurrences != null) {
+            for (Occurrence occurrence : occurrences) {
+                spans.add(occurrence.getLineNumber(), occurrence.getStartIndex(), occurrence.getFullWord().length());
             }
+        }
+        return spans.seal();
+    }
 
-            StringBuilder result = new StringBuilder();
-            int charIndex = 0;
-
-            while (charIndex < line.length()) {
-                if (matchIndex < matches.size() &&
-                        matches.get(matchIndex).lineNum() == lineNum &&
-                        matches.get(matchIndex).startIndex() == charIndex) {
-
-                    RegexMatch m = matches.get(matchIndex);
-
-                    result.append(RED + BOLD);
-                    result.append(line, charIndex, charIndex + m.length());
-                    result.append(RESET);
+    /** Prints a view in one go, or through the pager when it is on and the view is taller than a page. */
+    private void printView(HighlightedView view) {
+        if (pageRows == 0 || view.rowCount() <= pageRows) {
+            view.render(0, view.rowCount(), System.out);
+            return;
+        }
 
-                    charIndex += m.length();
-                    matchIndex++;
-                } else {
-                    result.append(line.charAt(charIndex));
-                    charIndex++;
+        int top = 0;
+        while (true) {
+            int bottom = Math.min(view.rowCount(), top + pageRows);
+            view.render(top, bottom, System.out);
+            if (bottom == view.rowCount()) {
+                return;
+            }
+            System.out.printf("%s-- Lines %d-%d of %d (%d%%) -- Enter: next, b: back, g <line>: go to, q: quit%s ",
+                    DIM, view.lineAt(top), view.lineAt(bottom - 1), view.lineCount(),
+                    (int) (100L * bottom / view.rowCount()), RESET);
+            String answer = safeReadLine();
+            if (answer == null) {
+                return;
+            }
+            answer = answer.trim().toLowerCase();
+            if (answer.equals(CMD_Q)) {
+                return;
+            } else if (answer.equals("b")) {
+                top = Math.max(0, top - pageRows);
+            } else if (answer.startsWith("g")) {
+                try {
+                    int row = view.rowOfLine(Integer.parseInt(answer.substring(1).trim()));
+                    top = Math.max(0, Math.min(row, view.rowCount() - pageRows));
+                } catch (NumberFormatException e) {
+                    printError("Usage: g <line>");
                 }
+            } else {
+                top = bottom;
             }
-
-            System.out.println(linePrefix + result.toString());
         }
     }
 
-    private void displayReplacedResult(SearchResult result, String mode, String replacement) {
+    private void displayReplacedResult(List<String> fileLines, SearchResult result, String mode,
+            String replacement) {
         printSeparator();
 
         if (!result.isSuccess()) {
@@ -704,7 +1138,6 @@ public class EnhancedCLIMode implements SearchInterface {
         printDivider();
 
         List<Occurrence> occurrences = result.getResults();
-        List<String> fileLines = searchService.getFileLines();
 
         if (occurrences == null || occurrences.isEmpty()) {
             printInfo("No occurrences found to replace.");
@@ -718,14 +1151,11 @@ public class EnhancedCLIMode implements SearchInterface {
 
         printSeparator();
         printMatchSummary(result.getCount());
-
-        if (occurrences != null && !occurrences.isEmpty()) {
-            promptSaveReplaced(occurrences, replacement);
-        }
     }
 
-    private void displayRegexReplaceResult(List<String> replacedLines, int matchCount,
-            String pattern, String replacement, boolean caseInsensitive) {
+    /** Prints the file with the changed lines substituted; unchanged lines are read from the file itself. */
+    private void displayRegexReplaceResult(List<String> fileLines, int[] changedLines, List<String> changedTexts,
+            int matchCount, String pattern, String replacement) {
         printSeparator();
 
         System.out.printf("%s[REGEX REPLACE]%s Pattern: %s%s%s | Replacing: %s%d%s matches%n",
@@ -735,17 +1165,18 @@ public class EnhancedCLIMode implements SearchInterface {
         System.out.printf("  %sReplacement:%s %s%s%s%n", DIM, RESET, GREEN + BOLD, replacement, RESET);
         printDivider();
 
-        for (int i = 0; i < replacedLines.size(); i++) {
+        int changedIndex = 0;
+        for (int i = 0; i < fileLines.size(); i++) {
             String linePrefix = showLineNumbers ? formatLineNumber(i + 1) : "";
-            System.out.println(linePrefix + replacedLines.get(i));
+            if (changedIndex < changedLines.length && changedLines[changedIndex] == i) {
+                System.out.println(linePrefix + changedTexts.get(changedIndex++));
+            } else {
+                System.out.println(linePrefix + fileLines.get(i));
+            }
         }
 
         printSeparator();
         printMatchSummary(matchCount);
-
-        if (matchCount > 0) {
-            promptSaveRegexReplace(replacedLines);
-        }
     }
 
     private void displayReplacedFile(List<String> fileLines, List<Occurrence> occurrences, String replacement) {
@@ -814,9 +1245,9 @@ public class EnhancedCLIMode implements SearchInterface {
                 filePath -> saveHighlightedFile(occurrences, filePath));
     }
 
-    private void promptSaveReplaced(List<Occurrence> occurrences, String replacement) {
-        promptSaveResults("Save replaced results to file?",
-                filePath -> saveReplacedFile(occurrences, replacement, filePath));
+    private void promptSaveDocument() {
+        promptSaveResults("Save edited document to file?",
+                filePath -> saveLinesToFile(searchService.getFileLines(), filePath));
     }
 
     private void promptSaveRegex(String pattern, boolean caseInsensitive) {
@@ -824,11 +1255,6 @@ public class EnhancedCLIMode implements SearchInterface {
                 filePath -> saveRegexHighlightedFile(pattern, caseInsensitive, filePath));
     }
 
-    private void promptSaveRegexReplace(List<String> replacedLines) {
-        promptSaveResults("Save replaced results to file?",
-                filePath -> saveLinesToFile(replacedLines, filePath));
-    }
-
     private void saveHighlightedFile(List<Occurrence> occurrences, String filePath) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
             List<String> fileLines = searchService.getFileLines();
@@ -879,54 +1305,6 @@ public class EnhancedCLIMode implements SearchInterface {
         }
     }
 
-    private void saveReplacedFile(List<Occurrence> occurrences, String replacement, String filePath) {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            List<String> fileLines = searchService.getFileLines();
-            int occIndex = 0;
-
-            for (int lineNum = 1; lineNum <= fileLines.size(); lineNum++) {
-                String line = fileLines.get(lineNum - 1);
-                String outputLine;
-
-                if (occIndex >= occurrences.size() ||
-                        occurrences.get(occIndex).getLineNumber() != lineNum) {
-                    outputLine = line;
-                } else {
-                    StringBuilder result = new StringBuilder();
-                    int charIndex = 0;
-
-                    while (charIndex < line.length()) {
-                        if (occIndex < occurrences.size() &&
-                                occurrences.get(occIndex).getLineNumber() == lineNum &&
-                                occurrences.get(occIndex).getStartIndex() == charIndex) {
-
-                            Occurrence occ = occurrences.get(occIndex);
-                            result.append(replacement);
-                            charIndex += occ.getFullWord().length();
-                            occIndex++;
-                        } else {
-                            result.append(line.charAt(charIndex));
-                            charIndex++;
-                        }
-                    }
-                    outputLine = result.toString();
-
-                    while (occIndex < occurrences.size() &&
-                            occurrences.get(occIndex).getLineNumber() == lineNum) {
-                        occIndex++;
-                    }
-                }
-
-                writer.write(outputLine);
-                writer.newLine();
-            }
-
-            printSuccess("Results saved to: " + filePath);
-        } catch (IOException e) {
-            printError("Failed to save file: " + e.getMessage());
-        }
-    }
-
     private void saveRegexHighlightedFile(String patternStr, boolean caseInsensitive, String filePath) {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
             int flags = caseInsensitive ? Pattern.CASE_INSENSITIVE : 0;
@@ -1010,6 +1388,13 @@ public class EnhancedCLIMode implements SearchInterface {
         System.out.printf("    %ssearch%s <mode> <pattern>               Search and highlight%n", GREEN, RESET);
         System.out.printf("    %slist%s   <mode> <pattern>               List all matches%n", GREEN, RESET);
         System.out.printf("    %sreplace%s <mode> <pattern> <replacement>  Find and replace%n", GREEN, RESET);
+        System.out.printf("    %sreplace-map%s <mapping-file> [output]  Apply key<TAB>replacement pairs in one pass%n", GREEN, RESET);
+        System.out.printf("    %sundo%s | %sredo%s                        Revert or re-apply the last replace%n", GREEN, RESET, GREEN, RESET);
+        System.out.printf("    %squery%s  <expression>                   Boolean query (AND, OR, NOT, \"phrase\", NEAR/k)%n", GREEN, RESET);
+        System.out.printf("    %srank%s   [k] <words>                    Top k lines by BM25 relevance%n", GREEN, RESET);
+        System.out.printf("    %scount%s  <mode> <keyword>               Count matches only%n", GREEN, RESET);
+        System.out.printf("    %sexists%s <mode> <keyword>               Check whether any match exists%n", GREEN, RESET);
+        System.out.printf("    %sexport%s <format> <file> <mode> <kw>    Stream matches as jsonl or binary records%n", GREEN, RESET);
         System.out.println();
 
         System.out.println(colorize("  SEARCH MODES", BOLD + YELLOW));
@@ -1022,7 +1407,10 @@ public class EnhancedCLIMode implements SearchInterface {
         System.out.println(colorize("  DISPLAY OPTIONS", BOLD + YELLOW));
         System.out.printf("    %scontext%s <n>          Set context lines around matches%n", GREEN, RESET);
         System.out.printf("    %slines on%s/%soff%s        Toggle line numbers%n", GREEN, RESET, GREEN, RESET);
+        System.out.printf("    %spager%s on|off|<n>     Page long output, n lines per page%n", GREEN, RESET);
         System.out.printf("    %sclear%s                Clear screen%n", GREEN, RESET);
+        System.out.printf("    %stimeout%s <ms>         Stop searches after ms milliseconds (0 disables)%n", GREEN, RESET);
+        System.out.println(colorize("    Ctrl-C stops a running search and returns to the prompt with partial results.", DIM));
         System.out.println();
 
         System.out.println(colorize("  OTHER", BOLD + YELLOW));
@@ -1057,4 +1445,137 @@ public class EnhancedCLIMode implements SearchInterface {
 
     private record RegexMatch(int lineNum, int startIndex, int length, String matchedText) {
     }
+
+    /**
+     * Highlighted file lines laid out as rows: the lines of each interval, with
+     * a gap row between intervals. Rows are rendered on demand, so the pager
+     * draws only the rows on screen. Rendering copies the text between spans
+     * in bulk into one reusable buffer and hands it to the stream in large
+     * chunks, instead of a synchronized, autoflushed {@code println} per line.
+     */
+    private static final class HighlightedView {
+        private static final int FLUSH_CHARS = 64 * 1024;
+        private static final String HIGHLIGHT = RED + BOLD;
+        private static final String GUTTER = CYAN + DIM;
+        private static final String GAP = DIM + "    ..." + RESET;
+
+        private final List<String> fileLines;
+        private final int[] intervals;
+        private final int[] firstRows;
+        private final int rowCount;
+        private final OccurrenceList spans;
+        private final boolean lineNumbers;
+        private final StringBuilder buffer = new StringBuilder(FLUSH_CHARS + 1024);
+
+        HighlightedView(List<String> fileLines, int[] intervals, OccurrenceList spans, boolean lineNumbers) {
+            this.fileLines = fileLines;
+            this.intervals = intervals;
+            this.spans = spans;
+            this.lineNumbers = lineNumbers;
+            this.firstRows = new int[intervals.length / 2];
+            int rows = 0;
+            for (int k = 0; k < firstRows.length; k++) {
+                firstRows[k] = rows;
+                rows += intervals[2 * k + 1] - intervals[2 * k] + 2;
+            }
+            this.rowCount = Math.max(0, rows - 1);
+        }
+
+        int rowCount() {
+            return rowCount;
+        }
+
+        int lineCount() {
+            return fileLines.size();
+        }
+
+        /** The line shown on a row; for a gap row, the last line before the gap. */
+        int lineAt(int row) {
+            int k = intervalAt(row);
+            return Math.min(intervals[2 * k] + row - firstRows[k], intervals[2 * k + 1]);
+        }
+
+        /** The row showing a line, or the first row after it when the line is not shown. */
+        int rowOfLine(int lineNum) {
+            for (int k = 0; k < firstRows.length; k++) {
+                if (lineNum <= intervals[2 * k + 1]) {
+                    return firstRows[k] + Math.max(0, lineNum - intervals[2 * k]);
+                }
+            }
+            return rowCount;
+        }
+
+        /** Writes rows {@code from} (inclusive) to {@code to} (exclusive) and flushes. */
+        void render(int from, int to, PrintStream out) {
+            if (from < to) {
+                int k = intervalAt(from);
+                int lineNum = intervals[2 * k] + from - firstRows[k];
+                int span = firstSpanAt(Math.min(lineNum, intervals[2 * k + 1]));
+                for (int row = from; row < to; row++, lineNum++) {
+                    if (lineNum > intervals[2 * k + 1]) {
+                        buffer.append(GAP).append('\n');
+                        lineNum = intervals[2 * ++k] - 1;
+                    } else {
+                        span = appendLine(lineNum, span);
+                    }
+                    if (buffer.length() >= FLUSH_CHARS) {
+                        out.append(buffer);
+                        buffer.setLength(0);
+                    }
+                }
+            }
+            out.append(buffer);
+            buffer.setLength(0);
+            out.flush();
+        }
+
+        /** Appends one line with its spans highlighted; returns the index of the first span past it. */
+        private int appendLine(int lineNum, int span) {
+            String line = fileLines.get(lineNum - 1);
+            if (lineNumbers) {
+                buffer.append(GUTTER);
+                for (int width = 1000; width > 1 && lineNum < width; width /= 10) {
+                    buffer.append(' ');
+                }
+                buffer.append(lineNum).append(" │").append(RESET).append(' ');
+            }
+            int charIndex = 0;
+            for (int count = spans.size(); span < count; span++) {
+                int spanLine = spans.getLineNumber(span);
+                if (spanLine > lineNum) {
+                    break;
+                }
+                int start = spans.getStartIndex(span);
+                if (spanLine < lineNum || start < charIndex) {
+                    continue;
+                }
+                int end = Math.min(line.length(), start + spans.getLength(span));
+                buffer.append(line, charIndex, start).append(HIGHLIGHT)
+                        .append(line, start, end).append(RESET);
+                charIndex = end;
+            }
+            buffer.append(line, charIndex, line.length()).append('\n');
+            return span;
+        }
+
+        private int intervalAt(int row) {
+            int k = Arrays.binarySearch(firstRows, row);
+            return k >= 0 ? k : -k - 2;
+        }
+
+        /** Index of the first span on or after a line. */
+        private int firstSpanAt(int lineNum) {
+            int low = 0;
+            int high = spans.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (spans.getLineNumber(mid) < lineNum) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
 }
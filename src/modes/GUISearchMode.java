@@ -4,20 +4,50 @@ import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import src.models.Occurrence;
-import src.processors.BoyerMooreHorspool;
-import src.processors.TextProcessor;
+import src.processors.PrefixSearchEngine.Completion;
+import src.services.CancellationToken;
+import src.services.SearchService;
+import src.services.SearchService.SearchMode;
+import src.services.SearchService.SearchResult;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 public class GUISearchMode extends JFrame implements src.interfaces.SearchInterface {
-    private TextProcessor tp = new TextProcessor();
+    private static final int SEARCH_BATCH_LINES = 4096;
+    private static final int PROGRESS_SCALE = 1000;
+    private static final int SUGGESTION_DELAY_MS = 120;
+    private static final int SUGGESTION_LIMIT = 8;
+    private static final String PROTOTYPE_ROW = "[Line 0000000, Index 000] keyword    a typical line of text";
+
+    private final SearchService searchService = new SearchService();
+    private final ResultListModel resultModel = new ResultListModel();
     private JTextField searchField;
     private JComboBox<String> searchMode; 
-    private JButton loadButton, searchButton;
-    private JTextArea resultArea;
-    private JLabel fileLabel;
+    private JCheckBox matchCase;
+    private JButton loadButton, searchButton, cancelButton;
+    private JList<Occurrence> resultList;
+    private JLabel fileLabel, statusLabel;
+    private JProgressBar loadProgress;
+    private SearchWorker activeSearch;
+    private LoadWorker activeLoad;
+    private final DefaultListModel<Completion> suggestionModel = new DefaultListModel<>();
+    private JList<Completion> suggestionList;
+    private JPopupMenu suggestionPopup;
+    private Timer suggestionTimer;
+    private SuggestWorker activeSuggestion;
+    private boolean applyingSuggestion;
 
     public GUISearchMode() {
         super("Advanced Text Search Tool");
@@ -26,14 +56,21 @@ public class GUISearchMode extends JFrame implements src.interfaces.SearchInterf
         JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         loadButton = new JButton("Load File");
         fileLabel = new JLabel("No file loaded");
+        loadProgress = new JProgressBar(0, PROGRESS_SCALE);
+        loadProgress.setStringPainted(true);
+        loadProgress.setVisible(false);
         topPanel.add(loadButton);
         topPanel.add(fileLabel);
+        topPanel.add(loadProgress);
         add(topPanel, BorderLayout.NORTH);
 
-        resultArea = new JTextArea(20, 60);
-        resultArea.setEditable(false);
-        resultArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        JScrollPane scrollPane = new JScrollPane(resultArea);
+        // Fixed cell size: the list never measures rows, and only visible rows are rendered.
+        resultList = new JList<>(resultModel);
+        resultList.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        resultList.setPrototypeCellValue(new Occurrence(0, 0, PROTOTYPE_ROW));
+        resultList.setVisibleRowCount(20);
+        resultList.setCellRenderer(new ResultRenderer());
+        JScrollPane scrollPane = new JScrollPane(resultList);
         add(scrollPane, BorderLayout.CENTER);
 
         JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
@@ -41,17 +78,37 @@ public class GUISearchMode extends JFrame implements src.interfaces.SearchInterf
 
         String[] modes = { "Prefix", "Substring", "Whole Word" };
         searchMode = new JComboBox<>(modes);
+        matchCase = new JCheckBox("Match case");
         
         searchButton = new JButton("Search");
+        cancelButton = new JButton("Cancel");
+        cancelButton.setEnabled(false);
+        statusLabel = new JLabel(" ");
         bottomPanel.add(new JLabel("Keyword: "));
         bottomPanel.add(searchField);
         bottomPanel.add(new JLabel("Mode: "));
         bottomPanel.add(searchMode);
+        bottomPanel.add(matchCase);
         bottomPanel.add(searchButton);
+        bottomPanel.add(cancelButton);
+        bottomPanel.add(statusLabel);
         add(bottomPanel, BorderLayout.SOUTH);
 
         loadButton.addActionListener(e -> loadFile());
         searchButton.addActionListener(e -> performSearch());
+        searchField.addActionListener(e -> {
+            if (suggestionPopup.isVisible() && suggestionList.getSelectedIndex() >= 0) {
+                acceptSuggestion(suggestionList.getSelectedValue());
+            } else {
+                hideSuggestions();
+                performSearch();
+            }
+        });
+        setupSuggestions();
+        cancelButton.addActionListener(e -> {
+            cancelLoad();
+            stopSearch();
+        });
 
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         pack();
@@ -64,93 +121,426 @@ public class GUISearchMode extends JFrame implements src.interfaces.SearchInterf
         SwingUtilities.invokeLater(GUISearchMode::new);
     }
     
-        private void loadFile() {
+    /**
+     * Suggestions under the search field: each edit restarts a short timer, and
+     * when typing pauses the top completions of the field's text are fetched
+     * from the word trie in the background. An edit also cancels a fetch still
+     * in flight, so only the latest text is ever shown.
+     */
+    private void setupSuggestions() {
+        suggestionList = new JList<>(suggestionModel);
+        suggestionList.setFocusable(false);
+        suggestionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        suggestionList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean isSelected, boolean cellHasFocus) {
+                Completion completion = (Completion) value;
+                return super.getListCellRendererComponent(list,
+                        completion.word() + "  (" + completion.frequency() + ")", index, isSelected, cellHasFocus);
+            }
+        });
+        suggestionList.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int index = suggestionList.locationToIndex(e.getPoint());
+                if (index >= 0) {
+                    acceptSuggestion(suggestionModel.get(index));
+                }
+            }
+        });
+        suggestionPopup = new JPopupMenu();
+        suggestionPopup.setFocusable(false);
+        suggestionPopup.add(suggestionList);
+
+        suggestionTimer = new Timer(SUGGESTION_DELAY_MS, e -> requestSuggestions());
+        suggestionTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                scheduleSuggestions();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                scheduleSuggestions();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
+        InputMap inputs = searchField.getInputMap(JComponent.WHEN_FOCUSED);
+        ActionMap actions = searchField.getActionMap();
+        inputs.put(KeyStroke.getKeyStroke(KeyEvent.VK_DOWN, 0), "suggestion-next");
+        inputs.put(KeyStroke.getKeyStroke(KeyEvent.VK_UP, 0), "suggestion-previous");
+        inputs.put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "suggestion-hide");
+        actions.put("suggestion-next", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                moveSuggestionSelection(1);
+            }
+        });
+        actions.put("suggestion-previous", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                moveSuggestionSelection(-1);
+            }
+        });
+        actions.put("suggestion-hide", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                hideSuggestions();
+            }
+        });
+    }
+
+    private void scheduleSuggestions() {
+        if (applyingSuggestion) {
+            return;
+        }
+        if (activeSuggestion != null) {
+            activeSuggestion.cancel(true);
+            activeSuggestion = null;
+        }
+        suggestionTimer.restart();
+    }
+
+    private void requestSuggestions() {
+        String prefix = searchField.getText().trim();
+        if (prefix.isEmpty() || prefix.indexOf(' ') >= 0 || !searchService.isFileLoaded()) {
+            hideSuggestions();
+            return;
+        }
+        activeSuggestion = new SuggestWorker(prefix);
+        activeSuggestion.execute();
+    }
+
+    private void showSuggestions(List<Completion> completions) {
+        if (completions.isEmpty() || !searchField.isShowing()) {
+            hideSuggestions();
+            return;
+        }
+        suggestionModel.clear();
+        suggestionModel.addAll(completions);
+        suggestionList.setVisibleRowCount(completions.size());
+        suggestionPopup.setVisible(false);
+        suggestionPopup.pack();
+        suggestionPopup.show(searchField, 0, searchField.getHeight());
+    }
+
+    private void hideSuggestions() {
+        suggestionTimer.stop();
+        suggestionPopup.setVisible(false);
+        suggestionList.clearSelection();
+    }
+
+    private void moveSuggestionSelection(int step) {
+        if (!suggestionPopup.isVisible() || suggestionModel.isEmpty()) {
+            return;
+        }
+        int index = Math.floorMod(suggestionList.getSelectedIndex() + step, suggestionModel.size());
+        suggestionList.setSelectedIndex(index);
+        suggestionList.ensureIndexIsVisible(index);
+    }
+
+    private void acceptSuggestion(Completion completion) {
+        applyingSuggestion = true;
+        try {
+            searchField.setText(completion.word());
+        } finally {
+            applyingSuggestion = false;
+        }
+        hideSuggestions();
+        searchField.requestFocusInWindow();
+    }
+
+    private void loadFile() {
         JFileChooser chooser = new JFileChooser();
-        chooser.setFileFilter(new FileNameExtensionFilter("Text Files", "txt"));
+        chooser.setFileFilter(new FileNameExtensionFilter("Text Files", "txt", "gz"));
         if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-            File file = chooser.getSelectedFile();
-            try {
-                
-                tp.loadFile(file.getAbsolutePath());
-                fileLabel.setText(file.getName() + " (Ready)");
-                resultArea.setText("File loaded and indexed successfully!\n");
-            } catch (IOException ex) {
-                JOptionPane.showMessageDialog(this, "Error: " + ex.getMessage());
-            }
+            cancelLoad();
+            activeLoad = new LoadWorker(chooser.getSelectedFile());
+            loadProgress.setValue(0);
+            loadProgress.setString("Loading...");
+            loadProgress.setVisible(true);
+            cancelButton.setEnabled(true);
+            activeLoad.execute();
+        }
+    }
+
+    private void cancelLoad() {
+        if (activeLoad != null) {
+            activeLoad.token.cancel();
+            activeLoad = null;
+            loadProgress.setVisible(false);
+            statusLabel.setText("Load cancelled; previous file is still loaded");
+            updateCancelButton();
         }
     }
 
+    private void updateCancelButton() {
+        cancelButton.setEnabled(activeSearch != null || activeLoad != null);
+    }
+
     private void performSearch() {
         String query = searchField.getText().trim();
         if (query.isEmpty()) {
             JOptionPane.showMessageDialog(this, "Please enter a keyword.");
             return;
         }
+        if (!searchService.isFileLoaded()) {
+            JOptionPane.showMessageDialog(this, "Please load a file first.");
+            return;
+        }
 
-        resultArea.setText("--- Search Results ---\n");
+        cancelSearch();
+        resultModel.clear();
         String mode = (String) searchMode.getSelectedItem();
+        SearchMode searchModeValue = "Prefix".equals(mode) ? SearchMode.PREFIX
+                : "Whole Word".equals(mode) ? SearchMode.WHOLE_WORD : SearchMode.SUBSTRING;
 
-        long startTime = System.nanoTime();
-        
-        if ("Prefix".equals(mode)) {
-            displayPrefixResults(query);
-        } else {
-            displayBoyerMooreResults(query, "Whole Word".equals(mode));
+        activeSearch = new SearchWorker(query, searchModeValue, !matchCase.isSelected());
+        cancelButton.setEnabled(true);
+        statusLabel.setText("Searching...");
+        activeSearch.execute();
+    }
+
+    /** Stops the running search; it stays current, so its partial result is still shown. */
+    private void stopSearch() {
+        if (activeSearch != null) {
+            activeSearch.token.cancel();
         }
+    }
 
-        long endTime = System.nanoTime();
-        long duration = (endTime - startTime) / 1000; 
-        
-        resultArea.append("\n----------------------\n");
-        resultArea.append("Execution Time: " + duration + " microseconds\n");
+    /** Stops the running search and drops it, for when a new search or file replaces it. */
+    private void cancelSearch() {
+        if (activeSearch != null) {
+            activeSearch.token.cancel();
+            activeSearch = null;
+            updateCancelButton();
+        }
     }
 
-    private void displayPrefixResults(String query) {
-        List<Occurrence> results = tp.getPrefixEngine().searchPrefix(query);
-        
-        results.sort((a, b) -> {
-            if (a.lineNumber != b.lineNumber) {
-                return Integer.compare(a.lineNumber, b.lineNumber);
+    /**
+     * Runs one search off the event thread. Matches arrive in batches of lines
+     * and are appended to the list model on the event thread, where the hit
+     * counter is updated with them.
+     */
+    private final class SearchWorker extends SwingWorker<SearchResult, List<Occurrence>> {
+        private final String keyword;
+        private final SearchMode mode;
+        private final boolean caseInsensitive;
+        private final CancellationToken token = CancellationToken.create();
+
+        SearchWorker(String keyword, SearchMode mode, boolean caseInsensitive) {
+            this.keyword = keyword;
+            this.mode = mode;
+            this.caseInsensitive = caseInsensitive;
+        }
+
+        @Override
+        protected SearchResult doInBackground() {
+            return searchService.searchIncremental(keyword, mode, caseInsensitive, SEARCH_BATCH_LINES,
+                    this::publish, token);
+        }
+
+        @Override
+        protected void process(List<List<Occurrence>> batches) {
+            if (activeSearch != this) {
+                return;
             }
-            return Integer.compare(a.startIndex, b.startIndex);
-        });
+            for (List<Occurrence> batch : batches) {
+                resultModel.append(batch);
+            }
+            statusLabel.setText("Searching... " + resultModel.getSize() + " hits");
+        }
 
-        resultArea.append("Total Occurrences Found: " + results.size() + "\n\n");
-        
-        for (Occurrence occ : results) {
-            resultArea.append("[Line " + occ.lineNumber + ", Index " + occ.startIndex + "] ");
-            resultArea.append("Word: " + occ.fullWord + "\n");
+        @Override
+        protected void done() {
+            if (activeSearch != this) {
+                return;
+            }
+            activeSearch = null;
+            updateCancelButton();
+            SearchResult result;
+            try {
+                result = get();
+            } catch (InterruptedException | ExecutionException e) {
+                statusLabel.setText("Search failed: " + e.getMessage());
+                return;
+            }
+            if (!result.isSuccess()) {
+                statusLabel.setText(result.getMessage());
+                return;
+            }
+            if (token.wasStopped()) {
+                statusLabel.setText(String.format("Cancelled: %d hits for '%s' (partial, %d ms)",
+                        result.getCount(), keyword, result.getExecutionTimeUs() / 1000));
+            } else {
+                statusLabel.setText(String.format("%d hits for '%s' in %d ms",
+                        result.getCount(), keyword, result.getExecutionTimeUs() / 1000));
+            }
         }
     }
 
-    private void displayBoyerMooreResults(String query, boolean isWholeWord) {
-        List<String> lines = tp.getLines();
-        int count = 0;
-        String searchPattern = tp.normalize(query);
+    /**
+     * Loads and indexes a file off the event thread, showing bytes and lines read
+     * in the progress bar. The current file stays loaded and searchable until the
+     * new one is published; a cancelled load leaves it in place.
+     */
+    private final class LoadWorker extends SwingWorker<SearchResult, long[]> {
+        private final File file;
+        private final CancellationToken token = CancellationToken.create();
 
-        for (int i = 0; i < lines.size(); i++) {
-            String line = tp.normalize(lines.get(i));
-            int index = 0;
+        LoadWorker(File file) {
+            this.file = file;
+        }
 
-            while ((index = BoyerMooreHorspool.search(line, searchPattern, index)) != -1) {
-                boolean match = true;
-                if (isWholeWord) {
-                    match = isWholeWordMatch(line, index, searchPattern.length());
-                }
+        @Override
+        protected SearchResult doInBackground() throws IOException {
+            return searchService.loadFile(file.getAbsolutePath(),
+                    (bytesRead, totalBytes, lines) -> publish(new long[] { bytesRead, totalBytes, lines }),
+                    token);
+        }
+
+        @Override
+        protected void process(List<long[]> updates) {
+            if (activeLoad != this) {
+                return;
+            }
+            long[] latest = updates.get(updates.size() - 1);
+            long bytesRead = latest[0];
+            long totalBytes = latest[1];
+            loadProgress.setValue(totalBytes > 0 ? (int) (bytesRead * PROGRESS_SCALE / totalBytes) : 0);
+            loadProgress.setString(String.format("%.1f / %.1f MB, %,d lines",
+                    bytesRead / 1e6, totalBytes / 1e6, latest[2]));
+        }
 
-                if (match) {
-                    count++;
-                    resultArea.append("[Line " + (i + 1) + ", Index " + index + "] " + lines.get(i).trim() + "\n");
+        @Override
+        protected void done() {
+            boolean current = activeLoad == this;
+            if (current) {
+                activeLoad = null;
+                loadProgress.setVisible(false);
+                updateCancelButton();
+            }
+            SearchResult result;
+            try {
+                result = get();
+            } catch (InterruptedException | ExecutionException e) {
+                if (current) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    JOptionPane.showMessageDialog(GUISearchMode.this, "Error: " + cause.getMessage());
+                }
+                return;
+            }
+            if (!result.isSuccess()) {
+                if (current) {
+                    statusLabel.setText(result.getMessage());
                 }
-                index += searchPattern.length();
+                return;
             }
+            // Published even if cancelled too late to stop it: results and a
+            // running search refer to the previous file.
+            cancelSearch();
+            resultModel.clear();
+            fileLabel.setText(file.getName() + " (Ready)");
+            statusLabel.setText(current
+                    ? String.format("Loaded %,d lines in %d ms", result.getCount(), result.getExecutionTimeUs())
+                    : "Load finished before it could be cancelled; " + file.getName() + " is loaded");
         }
-        resultArea.insert("Total Occurrences Found: " + count + "\n\n", 23);
     }
 
-    private boolean isWholeWordMatch(String line, int start, int length) {
-        boolean before = (start == 0) || !Character.isLetterOrDigit(line.charAt(start - 1));
-        boolean after = (start + length == line.length()) || !Character.isLetterOrDigit(line.charAt(start + length));
-        return before && after;
+    /** Fetches completions for one prefix; the result is dropped if the text has changed since. */
+    private final class SuggestWorker extends SwingWorker<List<Completion>, Void> {
+        private final String prefix;
+
+        SuggestWorker(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected List<Completion> doInBackground() {
+            return searchService.suggest(prefix, SUGGESTION_LIMIT);
+        }
+
+        @Override
+        protected void done() {
+            if (activeSuggestion != this || isCancelled()) {
+                return;
+            }
+            activeSuggestion = null;
+            try {
+                showSuggestions(get());
+            } catch (InterruptedException | ExecutionException e) {
+                hideSuggestions();
+            }
+        }
+    }
+
+    /**
+     * List model over result batches. Batches are kept as delivered, so
+     * appending copies nothing, and an {@link Occurrence} is only built when the
+     * list asks for a visible row.
+     */
+    private static final class ResultListModel extends AbstractListModel<Occurrence> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<List<Occurrence>> batches = new ArrayList<>();
+        private int[] offsets = new int[16];
+        private int size;
+
+        void append(List<Occurrence> batch) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (batches.size() + 1 == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            int first = size;
+            batches.add(batch);
+            size += batch.size();
+            offsets[batches.size()] = size;
+            fireIntervalAdded(this, first, size - 1);
+        }
+
+        void clear() {
+            if (size > 0) {
+                int last = size - 1;
+                batches.clear();
+                size = 0;
+                fireIntervalRemoved(this, 0, last);
+            }
+        }
+
+        @Override
+        public int getSize() {
+            return size;
+        }
+
+        @Override
+        public Occurrence getElementAt(int index) {
+            int batch = Arrays.binarySearch(offsets, 0, batches.size() + 1, index);
+            batch = batch >= 0 ? batch : -batch - 2;
+            return batches.get(batch).get(index - offsets[batch]);
+        }
+    }
+
+    private final class ResultRenderer extends DefaultListCellRenderer {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                      boolean isSelected, boolean cellHasFocus) {
+            Occurrence occ = (Occurrence) value;
+            String text = "[Line " + occ.lineNumber + ", Index " + occ.startIndex + "] " + occ.fullWord;
+            List<String> lines = searchService.getFileLines();
+            if (occ.lineNumber > 0 && occ.lineNumber <= lines.size()) {
+                text += "    " + lines.get(occ.lineNumber - 1).trim();
+            }
+            return super.getListCellRendererComponent(list, text, index, isSelected, cellHasFocus);
+        }
     }
 }
@@ -0,0 +1,142 @@
+package src.modes;
+
+import src.interfaces.SearchInterface;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local load generator for {@link ServerMode}. Each of {@code clients} threads
+ * sends GET requests to one URL back to back until {@code requests} have been
+ * sent in total, then the run is summarised as throughput and latency
+ * percentiles. A short warm-up is sent first and left out of the numbers.
+ * Non-2xx responses and I/O failures are counted as errors.
+ */
+public class LoadTestClient implements SearchInterface {
+    private static final int DEFAULT_CLIENTS = 16;
+    private static final int DEFAULT_REQUESTS = 2000;
+    private static final int MAX_WARMUP_REQUESTS = 200;
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final String[] options;
+
+    public LoadTestClient(String[] options) {
+        this.options = options;
+    }
+
+    @Override
+    public void run() {
+        if (options.length < 1) {
+            System.out.println("Usage: loadtest <url> [clients] [requests]");
+            System.out.println("  e.g. loadtest \"http://localhost:8080/search?q=conn&mode=s&limit=10\" 16 2000");
+            return;
+        }
+        URI uri;
+        int clients;
+        int requests;
+        try {
+            uri = URI.create(options[0]);
+            clients = options.length > 1 ? positive(options[1], "clients") : DEFAULT_CLIENTS;
+            requests = options.length > 2 ? positive(options[2], "requests") : DEFAULT_REQUESTS;
+        } catch (IllegalArgumentException e) {
+            System.out.println("[ERROR] " + e.getMessage());
+            return;
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(clients);
+        try {
+            HttpClient client = HttpClient.newBuilder().connectTimeout(REQUEST_TIMEOUT).build();
+            HttpRequest request = HttpRequest.newBuilder(uri).timeout(REQUEST_TIMEOUT).GET().build();
+            System.out.println("[Load test] " + uri + ": " + clients + " clients, " + requests + " requests");
+
+            send(client, request, workers, clients, Math.min(MAX_WARMUP_REQUESTS, requests / 10));
+            Report report = send(client, request, workers, clients, requests);
+            report.print();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("[ERROR] Load test interrupted");
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private static Report send(HttpClient client, HttpRequest request, ExecutorService workers,
+                               int clients, int requests) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(clients);
+
+        long start = System.nanoTime();
+        for (int c = 0; c < clients; c++) {
+            futures.add(workers.submit(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                        if (response.statusCode() / 100 != 2) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    latencies[i] = System.nanoTime() - sent;
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                errors.incrementAndGet();
+            }
+        }
+        return new Report(requests, errors.get(), System.nanoTime() - start, latencies);
+    }
+
+    private static int positive(String value, String name) {
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed > 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid " + name + ": '" + value + "'. Expected a positive integer");
+    }
+
+    private record Report(int requests, int errors, long elapsedNanos, long[] latencies) {
+        void print() {
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            System.out.printf("[Load test] %d requests in %.2f s, %d errors%n",
+                    requests, elapsedNanos / 1e9, errors);
+            System.out.printf("[Load test] Throughput: %.0f req/s%n", requests / (elapsedNanos / 1e9));
+            System.out.printf("[Load test] Latency: p50 %.2f ms, p99 %.2f ms, max %.2f ms%n",
+                    percentile(sorted, 50), percentile(sorted, 99), sorted[sorted.length - 1] / 1e6);
+        }
+
+        /** Nearest-rank percentile, in milliseconds. */
+        private static double percentile(long[] sorted, int p) {
+            int rank = (int) Math.ceil(p / 100.0 * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
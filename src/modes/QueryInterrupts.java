@@ -0,0 +1,118 @@
+package src.modes;
+
+import src.services.CancellationToken;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Routes Ctrl-C to the running CLI operation. While an operation holds a token
+ * an interrupt cancels it and the prompt comes back with partial results; at
+ * the prompt an interrupt exits as usual.
+ *
+ * <p>The SIGINT handler is installed through {@code sun.misc.Signal}, looked up
+ * reflectively so the build stays free of internal-API warnings. Where that
+ * lookup fails a shutdown hook is the fallback: it cancels the operation and
+ * waits, up to a short grace period, for its partial results to be printed
+ * before the JVM exits.
+ */
+final class QueryInterrupts {
+    private static final int INTERRUPTED_EXIT_CODE = 130;
+    private static final long GRACE_MILLIS = 2000;
+    private static final AtomicReference<CancellationToken> active = new AtomicReference<>();
+    private static final Object lock = new Object();
+    private static boolean busy;
+    private static boolean installed;
+
+    private QueryInterrupts() {
+    }
+
+    /** Installs the SIGINT handler once, or the shutdown hook where signals cannot be handled. */
+    static synchronized void install() {
+        if (installed) {
+            return;
+        }
+        if (!installSignalHandler()) {
+            Runtime.getRuntime().addShutdownHook(new Thread(QueryInterrupts::stopActive, "query-interrupts"));
+        }
+        installed = true;
+    }
+
+    /** Starts an operation with an optional timeout (0 for none). */
+    static CancellationToken begin(long timeoutMillis) {
+        CancellationToken token = CancellationToken.withTimeout(timeoutMillis);
+        synchronized (lock) {
+            busy = true;
+        }
+        active.set(token);
+        return token;
+    }
+
+    static void end(CancellationToken token) {
+        active.compareAndSet(token, null);
+    }
+
+    /** Marks the CLI as back at its prompt, with the last operation's output printed. */
+    static void idle() {
+        synchronized (lock) {
+            busy = false;
+            lock.notifyAll();
+        }
+    }
+
+    /** Equivalent to {@code Signal.handle(new Signal("INT"), handler)}; false if unavailable. */
+    private static boolean installSignalHandler() {
+        try {
+            Class<?> signalClass = Class.forName("sun.misc.Signal");
+            Class<?> handlerClass = Class.forName("sun.misc.SignalHandler");
+            Constructor<?> constructor = signalClass.getConstructor(String.class);
+            Method handle = signalClass.getMethod("handle", signalClass, handlerClass);
+            Object handler = Proxy.newProxyInstance(QueryInterrupts.class.getClassLoader(),
+                    new Class<?>[] { handlerClass }, (proxy, method, args) -> {
+                        if (method.getDeclaringClass() == Object.class) {
+                            return switch (method.getName()) {
+                                case "equals" -> proxy == args[0];
+                                case "hashCode" -> System.identityHashCode(proxy);
+                                default -> "QueryInterrupts";
+                            };
+                        }
+                        onInterrupt();
+                        return null;
+                    });
+            handle.invoke(null, constructor.newInstance("INT"), handler);
+            return true;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static void onInterrupt() {
+        CancellationToken token = active.get();
+        if (token != null) {
+            token.cancel();
+        } else {
+            System.exit(INTERRUPTED_EXIT_CODE);
+        }
+    }
+
+    private static void stopActive() {
+        CancellationToken token = active.get();
+        if (token != null) {
+            token.cancel();
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(GRACE_MILLIS);
+        synchronized (lock) {
+            try {
+                long remaining;
+                while (busy && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package src.modes;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import src.interfaces.SearchInterface;
+import src.models.Occurrence;
+import src.services.AsyncSearchService;
+import src.services.SearchService;
+import src.services.SearchService.SearchMode;
+import src.services.SearchService.SearchResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Serves the search engine over HTTP with JSON responses. Endpoints:
+ * <ul>
+ *   <li>{@code POST /load?path=...} loads a file;</li>
+ *   <li>{@code GET /search?q=...&mode=...&ci=...&limit=...} returns matches, at most {@code limit} of them;</li>
+ *   <li>{@code GET /count?q=...&mode=...&ci=...} returns the match count;</li>
+ *   <li>{@code POST /replace?q=...&with=...&mode=...&ci=...[&output=...]} writes the replaced
+ *       file to {@code output}, or applies the replace as an undoable edit without it.</li>
+ * </ul>
+ * Parameters come from the query string or a form-encoded body; {@code timeout}
+ * (milliseconds) bounds a query, which then returns its partial result marked
+ * {@code "truncated":true}. Each exchange runs on a virtual thread when the
+ * runtime has them, otherwise on a pool bounded by the concurrency limit, and
+ * queries go through an {@link AsyncSearchService}, so concurrent requests
+ * share the loaded snapshot and at most that limit of them scan at once.
+ *
+ * <p>The server has no authentication, so it listens on the loopback interface
+ * unless another bind address is given explicitly, and {@code path} and
+ * {@code output} must resolve inside the served root directory (the working
+ * directory by default); other paths are refused with 403.
+ */
+public class ServerMode implements SearchInterface {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    private final int port;
+    private final InetAddress bindAddress;
+    private final Path root;
+    private final SearchService searchService;
+    private final AsyncSearchService asyncService;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /** Listens on the loopback interface and serves files under the working directory. */
+    public ServerMode(int port) {
+        this(port, InetAddress.getLoopbackAddress(), Paths.get(""));
+    }
+
+    public ServerMode(int port, InetAddress bindAddress, Path root) {
+        this.port = port;
+        this.bindAddress = bindAddress;
+        this.root = root.toAbsolutePath().normalize();
+        this.searchService = new SearchService();
+        this.asyncService = new AsyncSearchService(searchService);
+    }
+
+    @Override
+    public void run() {
+        try {
+            InetSocketAddress address = start();
+            String host = bindAddress.isLoopbackAddress() ? "localhost" : bindAddress.getHostAddress();
+            System.out.println("[Server] Listening on http://" + host + ":" + address.getPort()
+                    + " (" + (asyncService.usesVirtualThreads() ? "virtual threads" : "thread pool") + ")");
+            System.out.println("[Server] Serving files under " + root);
+            System.out.println("[Server] Endpoints: POST /load, GET /search, GET /count, POST /replace");
+        } catch (IOException e) {
+            System.out.println("[ERROR] Cannot start server on port " + port + ": " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(this::stop));
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stop();
+        }
+    }
+
+    /** Binds and starts the server; returns the bound address (port 0 picks a free port). */
+    public synchronized InetSocketAddress start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        executor = AsyncSearchService.newHandlerExecutor("http-search", asyncService.getMaxConcurrent());
+        server.setExecutor(executor);
+        server.createContext("/load", exchange -> handle(exchange, "POST", this::load));
+        server.createContext("/search", exchange -> handle(exchange, "GET", this::search));
+        server.createContext("/count", exchange -> handle(exchange, "GET", this::count));
+        server.createContext("/replace", exchange -> handle(exchange, "POST", this::replace));
+        server.start();
+        return server.getAddress();
+    }
+
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(STOP_DELAY_SECONDS);
+            executor.shutdown();
+            asyncService.close();
+            server = null;
+        }
+        stopped.countDown();
+    }
+
+    private Response load(Map<String, String> params) {
+        String path = confine(require(params, "path"), false).toString();
+        try {
+            return Response.of(asyncService.loadFileAsync(path).join(), 0, "timeMs");
+        } catch (CompletionException e) {
+            return Response.error(400, "Load error: " + e.getCause().getMessage());
+        }
+    }
+
+    private Response search(Map<String, String> params) {
+        Query query = Query.parse(params);
+        int limit = intParam(params, "limit", DEFAULT_LIMIT);
+        SearchResult result = asyncService.submit(
+                token -> searchService.search(query.keyword(), query.mode(), query.caseInsensitive(), token),
+                query.timeoutMillis()).join();
+        return Response.of(result, limit, "timeUs");
+    }
+
+    private Response count(Map<String, String> params) {
+        Query query = Query.parse(params);
+        SearchResult result = asyncService.submit(
+                token -> searchService.count(query.keyword(), query.mode(), query.caseInsensitive(), token),
+                query.timeoutMillis()).join();
+        return Response.of(result, 0, "timeUs");
+    }
+
+    private Response replace(Map<String, String> params) {
+        Query query = Query.parse(params);
+        String replacement = params.getOrDefault("with", "");
+        String output = params.containsKey("output") ? confine(params.get("output"), true).toString() : null;
+        SearchResult result = asyncService.submit(token -> output == null
+                        ? searchService.applyReplace(query.keyword(), query.mode(), replacement,
+                                query.caseInsensitive(), token)
+                        : searchService.replace(query.keyword(), query.mode(), replacement, output,
+                                query.caseInsensitive(), token),
+                query.timeoutMillis()).join();
+        return Response.of(result, 0, "timeUs");
+    }
+
+    private void handle(HttpExchange exchange, String method, Endpoint endpoint) throws IOException {
+        Response response;
+        try {
+            if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath())) {
+                response = Response.error(404, "Not found: " + exchange.getRequestURI().getPath());
+            } else if (!exchange.getRequestMethod().equalsIgnoreCase(method)) {
+                exchange.getResponseHeaders().set("Allow", method);
+                response = Response.error(405, "Use " + method + " for " + exchange.getHttpContext().getPath());
+            } else if (!searchService.isFileLoaded() && !"/load".equals(exchange.getHttpContext().getPath())) {
+                response = Response.error(409, "No file loaded. POST /load?path=<file> first.");
+            } else {
+                response = endpoint.handle(readParams(exchange));
+            }
+        } catch (SecurityException e) {
+            response = Response.error(403, e.getMessage());
+        } catch (IllegalArgumentException e) {
+            response = Response.error(400, e.getMessage());
+        } catch (RejectedExecutionException e) {
+            response = Response.error(503, "Server is shutting down");
+        } catch (RuntimeException e) {
+            response = Response.error(500, "Server error: " + e);
+        }
+
+        byte[] body = response.json().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /** Query-string parameters, then form-encoded body parameters, which win on a clash. */
+    private static Map<String, String> readParams(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            if (body.length > 0) {
+                parseForm(new String(body, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Resolves a client path against the root and refuses it unless it stays
+     * inside the root once symbolic links are followed. An {@code output} path
+     * need not exist yet, but its directory must.
+     */
+    private Path confine(String value, boolean output) {
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + (output ? "output" : "path"));
+        }
+        Path path = root.resolve(value).normalize();
+        if (!path.startsWith(root)) {
+            throw new SecurityException("Path is outside the served directory: " + value);
+        }
+        try {
+            Path realRoot = root.toRealPath();
+            Path real = output && !Files.exists(path)
+                    ? realParent(path).resolve(path.getFileName())
+                    : path.toRealPath();
+            if (real.startsWith(realRoot)) {
+                return real;
+            }
+        } catch (IOException e) {
+            if (!output) {
+                throw new IllegalArgumentException("File not found: " + value);
+            }
+            throw new IllegalArgumentException("Output directory does not exist: " + value);
+        }
+        throw new SecurityException("Path is outside the served directory: " + value);
+    }
+
+    private static Path realParent(Path path) throws IOException {
+        Path parent = path.getParent();
+        if (parent == null || path.getFileName() == null) {
+            throw new IOException("No parent directory");
+        }
+        return parent.toRealPath();
+    }
+
+    private static String require(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: " + name);
+        }
+        return value;
+    }
+
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            int parsed = Integer.parseInt(value);
+            if (parsed >= 0) {
+                return parsed;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid " + name + ": '" + value + "'. Expected a non-negative integer");
+    }
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Response handle(Map<String, String> params);
+    }
+
+    /** Parameters shared by the query endpoints. */
+    private record Query(String keyword, SearchMode mode, boolean caseInsensitive, long timeoutMillis) {
+        static Query parse(Map<String, String> params) {
+            SearchMode mode = switch (params.getOrDefault("mode", "substring").toLowerCase()) {
+                case "prefix", "p" -> SearchMode.PREFIX;
+                case "substring", "sub", "s" -> SearchMode.SUBSTRING;
+                case "whole", "whole-word", "w" -> SearchMode.WHOLE_WORD;
+                default -> throw new IllegalArgumentException(
+                        "Invalid mode: '" + params.get("mode") + "'. Valid modes: prefix|p, substring|sub|s, whole|w");
+            };
+            String ci = params.getOrDefault("ci", "false").toLowerCase();
+            boolean caseInsensitive = ci.equals("true") || ci.equals("1") || ci.equals("y") || ci.equals("yes");
+            return new Query(require(params, "q"), mode, caseInsensitive, intParam(params, "timeout", 0));
+        }
+    }
+
+    private record Response(int status, String json) {
+        static Response error(int status, String message) {
+            return new Response(status, "{\"success\":false,\"message\":" + Json.quote(message) + "}");
+        }
+
+        /** Serializes a result with up to {@code limit} of its matches; {@code timeField} names the time unit. */
+        static Response of(SearchResult result, int limit, String timeField) {
+            StringBuilder json = new StringBuilder(128)
+                    .append("{\"success\":").append(result.isSuccess())
+                    .append(",\"message\":").append(Json.quote(result.getMessage()))
+                    .append(",\"count\":").append(result.getCount())
+                    .append(",\"truncated\":").append(result.isTruncated())
+                    .append(",\"fileSize\":").append(result.getFileSize())
+                    .append(",\"").append(timeField).append("\":").append(result.getExecutionTimeUs());
+            List<Occurrence> results = result.getResults();
+            if (limit > 0 && results != null) {
+                int shown = Math.min(limit, results.size());
+                json.append(",\"results\":[");
+                for (int i = 0; i < shown; i++) {
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    Occurrence occurrence = results.get(i);
+                    json.append("{\"line\":").append(occurrence.getLineNumber())
+                            .append(",\"index\":").append(occurrence.getStartIndex())
+                            .append(",\"text\":").append(Json.quote(occurrence.getFullWord())).append('}');
+                }
+                json.append(']');
+            }
+            json.append('}');
+            return new Response(result.isSuccess() ? 200 : 400, json.toString());
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package src.processors;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aho-Corasick automaton that finds every occurrence of many patterns in one
+ * left-to-right pass. Transitions are fully resolved into a dense table over the
+ * characters that actually occur in the patterns; any other character sends the
+ * automaton back to the root, so each text character costs one table lookup.
+ * Pattern sets too large or too diverse for the table (more than
+ * {@value #MAX_DENSE_CLASSES} distinct chars, or more than
+ * {@value #MAX_DENSE_ENTRIES} table entries) keep sorted per-state edges
+ * instead and follow failure links while scanning.
+ * A case-insensitive automaton folds case one char at a time (see
+ * {@link #foldCase}), so match offsets always index the text as given.
+ */
+public final class AhoCorasick {
+    private static final int[] NO_OUTPUTS = new int[0];
+    private static final char[] NO_LABELS = new char[0];
+    private static final int MAX_DENSE_CLASSES = 4096;
+    private static final int MAX_DENSE_ENTRIES = 1 << 24;
+
+    private final boolean caseInsensitive;
+    private final int[] patternLengths;
+    private final int[][] outputs;
+    private final int[] depth;
+
+    // dense form: a table row per state, a column per char class
+    private final char[] charClass;
+    private final int classCount;
+    private final int[] transitions;
+
+    // sparse form: each state's edges sorted by label, plus failure links
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+
+    /** Handles one match; {@code start} is the index of the match's first character. */
+    @FunctionalInterface
+    public interface MatchHandler {
+        void match(int pattern, int start);
+    }
+
+    /**
+     * Builds the automaton. Pattern ids are their indices in the list; duplicate
+     * patterns are allowed and each id is reported.
+     */
+    public AhoCorasick(List<String> patterns) {
+        this(patterns, false);
+    }
+
+    /** Builds the automaton, matching regardless of case when {@code caseInsensitive} is set. */
+    public AhoCorasick(List<String> patterns, boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+        if (caseInsensitive) {
+            patterns = patterns.stream().map(AhoCorasick::foldCase).toList();
+        }
+
+        // trie, with edges keyed by (state << 16 | char)
+        patternLengths = new int[patterns.size()];
+        Map<Long, Integer> edges = new HashMap<>();
+        boolean[] used = new boolean[Character.MAX_VALUE + 1];
+        int classes = 1;
+        int states = 1;
+        int[] depths = new int[16];
+        int[][] own = new int[16][];
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            if (pattern == null || pattern.isEmpty()) {
+                throw new IllegalArgumentException("Patterns cannot be empty");
+            }
+            patternLengths[p] = pattern.length();
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (!used[c]) {
+                    used[c] = true;
+                    classes++;
+                }
+                Integer next = edges.putIfAbsent(((long) state << 16) | c, states);
+                if (next == null) {
+                    if (states == depths.length) {
+                        depths = Arrays.copyOf(depths, states * 2);
+                        own = Arrays.copyOf(own, states * 2);
+                    }
+                    depths[states] = i + 1;
+                    next = states++;
+                }
+                state = next;
+            }
+            own[state] = append(own[state], p);
+        }
+        depth = Arrays.copyOf(depths, states);
+
+        // per-state edges sorted by label, then failure links and outputs breadth first
+        char[][] edgeLabels = new char[states][];
+        int[][] edgeTargets = new int[states][];
+        int[] fanOut = new int[states];
+        for (long key : edges.keySet()) {
+            fanOut[(int) (key >>> 16)]++;
+        }
+        long[][] packed = new long[states][];
+        for (Map.Entry<Long, Integer> edge : edges.entrySet()) {
+            int state = (int) (edge.getKey() >>> 16);
+            if (packed[state] == null) {
+                packed[state] = new long[fanOut[state]];
+                fanOut[state] = 0;
+            }
+            packed[state][fanOut[state]++] = ((edge.getKey() & 0xFFFF) << 32) | edge.getValue();
+        }
+        for (int state = 0; state < states; state++) {
+            long[] sorted = packed[state];
+            if (sorted == null) {
+                edgeLabels[state] = NO_LABELS;
+                edgeTargets[state] = NO_OUTPUTS;
+                continue;
+            }
+            Arrays.sort(sorted);
+            edgeLabels[state] = new char[sorted.length];
+            edgeTargets[state] = new int[sorted.length];
+            for (int e = 0; e < sorted.length; e++) {
+                edgeLabels[state][e] = (char) (sorted[e] >>> 32);
+                edgeTargets[state][e] = (int) sorted[e];
+            }
+            packed[state] = null;
+        }
+
+        int[] failLinks = new int[states];
+        int[][] out = new int[states][];
+        int[] order = new int[states];
+        out[0] = own[0] == null ? NO_OUTPUTS : own[0];
+        int head = 0;
+        int tail = 1;
+        while (head < tail) {
+            int state = order[head++];
+            for (int e = 0; e < edgeLabels[state].length; e++) {
+                int child = edgeTargets[state][e];
+                failLinks[child] = state == 0 ? 0 : step(edgeLabels, edgeTargets, failLinks,
+                        failLinks[state], edgeLabels[state][e]);
+                out[child] = merge(own[child], out[failLinks[child]]);
+                order[tail++] = child;
+            }
+        }
+        outputs = out;
+
+        if (classes <= MAX_DENSE_CLASSES && (long) states * classes <= MAX_DENSE_ENTRIES) {
+            charClass = new char[Character.MAX_VALUE + 1];
+            int next = 1;
+            for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                if (used[c]) {
+                    charClass[c] = (char) next++;
+                }
+            }
+            if (caseInsensitive) {
+                for (int c = 0; c <= Character.MAX_VALUE; c++) {
+                    if (charClass[c] == 0) {
+                        charClass[c] = charClass[foldCase((char) c)];
+                    }
+                }
+            }
+            classCount = classes;
+            transitions = denseTable(order, edgeLabels, edgeTargets, failLinks);
+            labels = null;
+            targets = null;
+            fail = null;
+        } else {
+            charClass = null;
+            classCount = 0;
+            transitions = null;
+            labels = edgeLabels;
+            targets = edgeTargets;
+            fail = failLinks;
+        }
+    }
+
+    /** Resolves every (state, class) pair, visiting states breadth first so each failure row is ready. */
+    private int[] denseTable(int[] order, char[][] edgeLabels, int[][] edgeTargets, int[] failLinks) {
+        int[] table = new int[order.length * classCount];
+        for (int state : order) {
+            int base = state * classCount;
+            if (state != 0) {
+                System.arraycopy(table, failLinks[state] * classCount, table, base, classCount);
+            }
+            for (int e = 0; e < edgeLabels[state].length; e++) {
+                table[base + charClass[edgeLabels[state][e]]] = edgeTargets[state][e];
+            }
+            table[base] = 0;
+        }
+        return table;
+    }
+
+    /** Goto-or-fail walk over the sparse edges; the root absorbs any char it has no edge for. */
+    private static int step(char[][] edgeLabels, int[][] edgeTargets, int[] failLinks, int state, char c) {
+        while (true) {
+            int e = Arrays.binarySearch(edgeLabels[state], c);
+            if (e >= 0) {
+                return edgeTargets[state][e];
+            }
+            if (state == 0) {
+                return 0;
+            }
+            state = failLinks[state];
+        }
+    }
+
+    private int next(int state, char c) {
+        if (transitions != null) {
+            return transitions[state * classCount + charClass[c]];
+        }
+        return step(labels, targets, fail, state, caseInsensitive ? foldCase(c) : c);
+    }
+
+    /**
+     * Case fold of one char, {@code toLowerCase(toUpperCase(c))}. Folding a string
+     * char by char keeps its length, unlike {@link String#toLowerCase()}, and
+     * does not depend on the default locale.
+     */
+    public static char foldCase(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /** {@link #foldCase(char)} applied to every char; the result has the same length. */
+    public static String foldCase(String text) {
+        char[] chars = text.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = foldCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    public int patternCount() {
+        return patternLengths.length;
+    }
+
+    public int patternLength(int pattern) {
+        return patternLengths[pattern];
+    }
+
+    /** Reports every occurrence of every pattern, ordered by end position. */
+    public void findAll(CharSequence text, MatchHandler handler) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next(state, text.charAt(i));
+            int[] matched = outputs[state];
+            for (int pattern : matched) {
+                handler.match(pattern, i + 1 - patternLengths[pattern]);
+            }
+        }
+    }
+
+    /**
+     * Reports non-overlapping matches in text order. At each point the match that
+     * starts leftmost wins, and among those the longest; scanning resumes after it.
+     */
+    public void findLeftmostLongest(CharSequence text, MatchHandler handler) {
+        int state = 0;
+        int best = -1;
+        int bestStart = 0;
+        int i = 0;
+        while (true) {
+            if (i < text.length()) {
+                state = next(state, text.charAt(i));
+                for (int pattern : outputs[state]) {
+                    int start = i + 1 - patternLengths[pattern];
+                    if (best == -1 || start < bestStart
+                            || (start == bestStart && patternLengths[pattern] > patternLengths[best])) {
+                        best = pattern;
+                        bestStart = start;
+                    }
+                }
+                i++;
+                // A match starting at or before bestStart would have to extend the
+                // longest live prefix, which starts at i - depth[state].
+                if (best == -1 || i - depth[state] <= bestStart) {
+                    continue;
+                }
+            } else if (best == -1) {
+                return;
+            }
+            handler.match(best, bestStart);
+            i = bestStart + patternLengths[best];
+            state = 0;
+            best = -1;
+        }
+    }
+
+    private static int[] append(int[] values, int value) {
+        if (values == null) {
+            return new int[] { value };
+        }
+        int[] grown = Arrays.copyOf(values, values.length + 1);
+        grown[values.length] = value;
+        return grown;
+    }
+
+    private static int[] merge(int[] own, int[] inherited) {
+        if (own == null) {
+            return inherited;
+        }
+        if (inherited.length == 0) {
+            return own;
+        }
+        int[] merged = Arrays.copyOf(own, own.length + inherited.length);
+        System.arraycopy(inherited, 0, merged, own.length, inherited.length);
+        return merged;
+    }
+}
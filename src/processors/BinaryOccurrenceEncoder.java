@@ -0,0 +1,74 @@
+package src.processors;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Compact binary output. The stream starts with the four bytes {@code 'T' 'S'
+ * 'O' 1} (format name and version); each match is then one record of three
+ * unsigned LEB128 varints — line number (1-based), character index (0-based)
+ * and text length in bytes — followed by that many bytes of UTF-8 text. Most
+ * records fit in well under ten bytes plus the text, and a reader can skip a
+ * record without decoding the text.
+ */
+public class BinaryOccurrenceEncoder extends OccurrenceEncoder {
+    private static final byte[] HEADER = { 'T', 'S', 'O', 1 };
+    private static final int MAX_VARINT_BYTES = 5;
+
+    private boolean headerWritten;
+
+    public BinaryOccurrenceEncoder(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    protected void encode(int lineNumber, int startIndex, String line, int end) throws IOException {
+        ensure(HEADER.length + 3 * MAX_VARINT_BYTES);
+        writeHeader();
+        putVarint(lineNumber);
+        putVarint(startIndex);
+        putVarint(utf8Length(line, startIndex, end));
+
+        int i = startIndex;
+        while (i < end) {
+            char c = line.charAt(i);
+            if (c >= 0x80) {
+                i = putNonAscii(line, i, end);
+                continue;
+            }
+            ensure(1);
+            buffer.put((byte) c);
+            i++;
+        }
+    }
+
+    /** Writes the header even when there are no records, so an empty result is still a valid stream. */
+    @Override
+    public void flush() throws IOException {
+        ensure(HEADER.length);
+        writeHeader();
+        super.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        ensure(HEADER.length);
+        writeHeader();
+        super.close();
+    }
+
+    private void writeHeader() {
+        if (!headerWritten) {
+            buffer.put(HEADER);
+            headerWritten = true;
+        }
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
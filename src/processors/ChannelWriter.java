@@ -0,0 +1,118 @@
+package src.processors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered text output straight to a {@link FileChannel}. Text segments are
+ * copied into a large char buffer and encoded in bulk into a direct byte buffer,
+ * so writing a line in pieces costs no intermediate strings. Uses the platform
+ * charset and line separator, like {@code BufferedWriter}.
+ */
+public class ChannelWriter implements Appendable, Closeable {
+    private static final int CHAR_BUFFER_SIZE = 256 * 1024;
+    private static final int BYTE_BUFFER_SIZE = 1024 * 1024;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final FileChannel channel;
+    private final CharsetEncoder encoder;
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(BYTE_BUFFER_SIZE);
+    private long bytesWritten;
+
+    public ChannelWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        this.encoder = Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    @Override
+    public ChannelWriter append(CharSequence text) throws IOException {
+        return append(text, 0, text.length());
+    }
+
+    /** Appends {@code text[start, end)}; strings are copied without an intermediate view. */
+    @Override
+    public ChannelWriter append(CharSequence text, int start, int end) throws IOException {
+        while (start < end) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int chunk = Math.min(end - start, chars.remaining());
+            if (text instanceof String string) {
+                chars.put(string, start, start + chunk);
+            } else {
+                chars.append(text, start, start + chunk);
+            }
+            start += chunk;
+        }
+        return this;
+    }
+
+    @Override
+    public ChannelWriter append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+        return this;
+    }
+
+    public void newLine() throws IOException {
+        append(LINE_SEPARATOR);
+    }
+
+    /** Number of bytes handed to the channel so far. */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Writes out everything buffered; if {@code sync} is set, also forces it to the device. */
+    public void flush(boolean sync) throws IOException {
+        encode(false);
+        drain();
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            encode(true);
+            while (encoder.flush(bytes) == CoderResult.OVERFLOW) {
+                drain();
+            }
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while (encoder.encode(chars, bytes, endOfInput) == CoderResult.OVERFLOW) {
+            drain();
+        }
+        chars.compact();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            bytesWritten += channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
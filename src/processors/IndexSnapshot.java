@@ -0,0 +1,58 @@
+package src.processors;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable view of one loaded file: its lines and the indexes built from them.
+ * A snapshot is never modified after it is published, so any number of threads
+ * can read it without locking; a reload publishes a new snapshot instead.
+ */
+public final class IndexSnapshot {
+    /** Snapshot before any file has been loaded. */
+    public static final IndexSnapshot EMPTY = new IndexSnapshot(null, Collections.emptyList(),
+            new PrefixSearchEngine(), new InvertedIndex(), 0, 0);
+
+    private final String path;
+    private final List<String> lines;
+    private final PrefixSearchEngine prefixEngine;
+    private final InvertedIndex wordIndex;
+    private final int characterCount;
+    private final long generation;
+
+    IndexSnapshot(String path, List<String> lines, PrefixSearchEngine prefixEngine, InvertedIndex wordIndex,
+                  int characterCount, long generation) {
+        this.path = path;
+        this.lines = Collections.unmodifiableList(lines);
+        this.prefixEngine = prefixEngine;
+        this.wordIndex = wordIndex;
+        this.characterCount = characterCount;
+        this.generation = generation;
+    }
+
+    /** Path the snapshot was loaded from, or {@code null} for {@link #EMPTY}. */
+    public String getPath() {
+        return path;
+    }
+
+    public List<String> getLines() {
+        return lines;
+    }
+
+    public PrefixSearchEngine getPrefixEngine() {
+        return prefixEngine;
+    }
+
+    public InvertedIndex getWordIndex() {
+        return wordIndex;
+    }
+
+    public int getCharacterCount() {
+        return characterCount;
+    }
+
+    /** Increases with every load, so results computed on older snapshots can be told apart. */
+    public long getGeneration() {
+        return generation;
+    }
+}
@@ -0,0 +1,65 @@
+package src.processors;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Word-level positional inverted index mapping each lowercased word to its
+ * posting list, plus the word count of every line for length normalization.
+ * Lines, and positions within a line, must be added in increasing order.
+ */
+public class InvertedIndex {
+    private final Map<String, PostingList> postings = new HashMap<>();
+    private int[] lineLengths = new int[16];
+    private int lineCount;
+    private long totalLength;
+
+    public void add(String word, int line, int position, int offset, int length) {
+        postings.computeIfAbsent(word.toLowerCase(), k -> new PostingList()).add(line, position, offset, length);
+    }
+
+    /** Records the number of indexed words on a line; lines are numbered from 1. */
+    public void setLineLength(int line, int length) {
+        if (line >= lineLengths.length) {
+            lineLengths = Arrays.copyOf(lineLengths, Math.max(line + 1, lineLengths.length * 2));
+        }
+        totalLength += length - lineLengths[line];
+        lineLengths[line] = length;
+        lineCount = Math.max(lineCount, line);
+    }
+
+    public int getLineLength(int line) {
+        return line < lineLengths.length ? lineLengths[line] : 0;
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    public double getAverageLineLength() {
+        return lineCount == 0 ? 0 : (double) totalLength / lineCount;
+    }
+
+    /** Releases spare capacity once all lines have been added. */
+    public void trim() {
+        lineLengths = Arrays.copyOf(lineLengths, lineCount + 1);
+        for (PostingList list : postings.values()) {
+            list.trim();
+        }
+    }
+
+    /** Returns the postings of a word, or {@code null} if it never occurs. */
+    public PostingList get(String word) {
+        return postings.get(word.toLowerCase());
+    }
+
+    public int getDocumentFrequency(String word) {
+        PostingList list = get(word);
+        return list == null ? 0 : list.size();
+    }
+
+    public int getTermCount() {
+        return postings.size();
+    }
+}
@@ -0,0 +1,78 @@
+package src.processors;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON Lines output: one object per match, e.g.
+ * {@code {"line":12,"index":4,"text":"conn"}}, followed by a newline. Line
+ * numbers are 1-based and the index is the 0-based character offset in the
+ * line, as in {@link src.models.Occurrence}. Output is UTF-8.
+ */
+public class JsonLinesEncoder extends OccurrenceEncoder {
+    private static final byte[] LINE_KEY = "{\"line\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] INDEX_KEY = ",\"index\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TEXT_KEY = ",\"text\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "\"}\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_INT_DIGITS = 11;
+
+    private final byte[] digits = new byte[MAX_INT_DIGITS];
+
+    public JsonLinesEncoder(WritableByteChannel channel) {
+        super(channel);
+    }
+
+    @Override
+    protected void encode(int lineNumber, int startIndex, String line, int end) throws IOException {
+        ensure(LINE_KEY.length + INDEX_KEY.length + TEXT_KEY.length + 2 * MAX_INT_DIGITS);
+        buffer.put(LINE_KEY);
+        putInt(lineNumber);
+        buffer.put(INDEX_KEY);
+        putInt(startIndex);
+        buffer.put(TEXT_KEY);
+
+        int i = startIndex;
+        while (i < end) {
+            char c = line.charAt(i);
+            if (c >= 0x80) {
+                i = putNonAscii(line, i, end);
+                continue;
+            }
+            ensure(6);
+            if (c == '"' || c == '\\') {
+                buffer.put((byte) '\\').put((byte) c);
+            } else if (c >= 0x20) {
+                buffer.put((byte) c);
+            } else if (c == '\t') {
+                buffer.put((byte) '\\').put((byte) 't');
+            } else if (c == '\r') {
+                buffer.put((byte) '\\').put((byte) 'r');
+            } else if (c == '\n') {
+                buffer.put((byte) '\\').put((byte) 'n');
+            } else {
+                buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                        .put(HEX[c >> 4]).put(HEX[c & 0xF]);
+            }
+            i++;
+        }
+
+        ensure(END.length);
+        buffer.put(END);
+    }
+
+    private void putInt(int value) {
+        long v = value;
+        if (v < 0) {
+            buffer.put((byte) '-');
+            v = -v;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + v % 10);
+            v /= 10;
+        } while (v != 0);
+        buffer.put(digits, pos, digits.length - pos);
+    }
+}
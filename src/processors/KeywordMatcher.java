@@ -0,0 +1,80 @@
+package src.processors;
+
+/**
+ * Allocation-free keyword matcher for a single line. Case-insensitive matching
+ * compares characters in place instead of lowercasing the line, and word
+ * boundaries are checked against the original text.
+ */
+public class KeywordMatcher {
+    private final String keyword;
+    private final boolean caseInsensitive;
+    private final boolean wordStart;
+    private final boolean wordEnd;
+    private final char firstLower;
+    private final char firstUpper;
+
+    public KeywordMatcher(String keyword, boolean caseInsensitive, boolean wordStart, boolean wordEnd) {
+        if (keyword == null || keyword.isEmpty()) {
+            throw new IllegalArgumentException("Keyword cannot be empty");
+        }
+        this.keyword = keyword;
+        this.caseInsensitive = caseInsensitive;
+        this.wordStart = wordStart;
+        this.wordEnd = wordEnd;
+        this.firstLower = Character.toLowerCase(keyword.charAt(0));
+        this.firstUpper = Character.toUpperCase(keyword.charAt(0));
+    }
+
+    public int length() {
+        return keyword.length();
+    }
+
+    /**
+     * Returns the start of the next accepted match at or after {@code from}, or -1.
+     * Candidates advance by the keyword length, so matches never overlap.
+     */
+    public int find(String line, int from) {
+        int index = from;
+        while ((index = indexOf(line, index)) != -1) {
+            if (isAccepted(line, index)) {
+                return index;
+            }
+            index += keyword.length();
+        }
+        return -1;
+    }
+
+    public int count(String line) {
+        int count = 0;
+        int index = 0;
+        while ((index = find(line, index)) != -1) {
+            count++;
+            index += keyword.length();
+        }
+        return count;
+    }
+
+    private int indexOf(String line, int from) {
+        if (!caseInsensitive) {
+            return line.indexOf(keyword, from);
+        }
+        int m = keyword.length();
+        int last = line.length() - m;
+        for (int i = from; i <= last; i++) {
+            char c = line.charAt(i);
+            if ((c == firstLower || c == firstUpper || (c >= 0x80 && Character.toLowerCase(c) == firstLower))
+                    && line.regionMatches(true, i + 1, keyword, 1, m - 1)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isAccepted(String line, int start) {
+        if (wordStart && start > 0 && Character.isLetterOrDigit(line.charAt(start - 1))) {
+            return false;
+        }
+        int end = start + keyword.length();
+        return !wordEnd || end == line.length() || !Character.isLetterOrDigit(line.charAt(end));
+    }
+}
@@ -0,0 +1,128 @@
+package src.processors;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a whole dictionary of substitutions in one pass per line. Keys are
+ * matched as substrings with an {@link AhoCorasick} automaton using
+ * leftmost-longest semantics: where keys overlap, the one starting first wins,
+ * then the longest, and the text it covers is not matched again. Counts are
+ * kept per key, so an engine must not be shared between threads.
+ *
+ * <p>Case-insensitive matching folds case char by char inside the automaton,
+ * so replacement offsets always fall on the original line. Keys that differ
+ * only by case would then be the same pattern, so they are rejected.
+ */
+public class MultiReplaceEngine {
+    private static final char COMMENT = '#';
+
+    private final List<String> keys;
+    private final String[] replacements;
+    private final AhoCorasick automaton;
+    private final long[] counts;
+    private final AhoCorasick.MatchHandler handler = this::onMatch;
+
+    private String line;
+    private Appendable out;
+    private int copied;
+    private int replaced;
+    private IOException failure;
+
+    public MultiReplaceEngine(Map<String, String> mapping, boolean caseInsensitive) {
+        if (mapping.isEmpty()) {
+            throw new IllegalArgumentException("Mapping has no entries");
+        }
+        this.keys = new ArrayList<>(mapping.keySet());
+        this.replacements = mapping.values().toArray(new String[0]);
+        this.counts = new long[keys.size()];
+
+        if (caseInsensitive) {
+            Map<String, String> folded = new HashMap<>();
+            for (String key : keys) {
+                String other = folded.putIfAbsent(AhoCorasick.foldCase(key), key);
+                if (other != null) {
+                    throw new IllegalArgumentException("Keys '" + other + "' and '" + key
+                            + "' differ only by case; keep one for a case-insensitive replace");
+                }
+            }
+        }
+        this.automaton = new AhoCorasick(keys, caseInsensitive);
+    }
+
+    /**
+     * Reads a mapping file with one {@code key<TAB>replacement} or
+     * {@code key=replacement} entry per line; the first tab, or else the first
+     * '=', separates them. Blank lines and lines starting with '#' are skipped.
+     */
+    public static Map<String, String> readMapping(String path) throws IOException {
+        Map<String, String> mapping = new LinkedHashMap<>();
+        try (BufferedReader reader = TextProcessor.openReader(path)) {
+            String line;
+            int lineNum = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNum++;
+                if (line.isBlank() || line.charAt(0) == COMMENT) {
+                    continue;
+                }
+                int separator = line.indexOf('\t');
+                if (separator == -1) {
+                    separator = line.indexOf('=');
+                }
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Line " + lineNum
+                            + ": expected key<TAB>replacement or key=replacement");
+                }
+                String key = line.substring(0, separator);
+                if (mapping.put(key, line.substring(separator + 1)) != null) {
+                    throw new IllegalArgumentException("Line " + lineNum + ": duplicate key '" + key + "'");
+                }
+            }
+        }
+        return mapping;
+    }
+
+    /** Writes the rewritten line, without a line separator, and returns the number of replacements. */
+    public int replaceLine(String line, Appendable out) throws IOException {
+        this.line = line;
+        this.out = out;
+        copied = 0;
+        replaced = 0;
+        failure = null;
+        automaton.findLeftmostLongest(line, handler);
+        if (failure != null) {
+            throw failure;
+        }
+        out.append(line, copied, line.length());
+        return replaced;
+    }
+
+    private void onMatch(int key, int start) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            out.append(line, copied, start);
+            out.append(replacements[key]);
+        } catch (IOException e) {
+            failure = e;
+        }
+        copied = start + automaton.patternLength(key);
+        counts[key]++;
+        replaced++;
+    }
+
+    /** Replacements made so far for each key, in mapping order. */
+    public Map<String, Long> getCounts() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int k = 0; k < keys.size(); k++) {
+            result.put(keys.get(k), counts[k]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,121 @@
+package src.processors;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Streams matches to a byte channel in a machine-readable format, one record per
+ * match, as they are produced. Records are encoded straight into a direct
+ * buffer, with the match text converted to UTF-8 in place from its line, and
+ * the buffer is handed to the channel whenever it fills. Nothing is allocated
+ * per record.
+ */
+public abstract class OccurrenceEncoder implements Closeable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+    private static final byte REPLACEMENT = '?';
+
+    protected final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final WritableByteChannel channel;
+    private long recordCount;
+    private long bytesWritten;
+
+    protected OccurrenceEncoder(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /** Creates the encoder for a format name: {@code jsonl} or {@code binary}. */
+    public static OccurrenceEncoder create(String format, WritableByteChannel channel) {
+        return switch (format.toLowerCase()) {
+            case "jsonl", "json" -> new JsonLinesEncoder(channel);
+            case "binary", "bin" -> new BinaryOccurrenceEncoder(channel);
+            default -> throw new IllegalArgumentException("Unknown format: '" + format + "'. Use: jsonl, binary");
+        };
+    }
+
+    /** Writes one record; the match text is {@code line[startIndex, startIndex + length)}. */
+    public final void write(int lineNumber, int startIndex, String line, int length) throws IOException {
+        encode(lineNumber, startIndex, line, startIndex + length);
+        recordCount++;
+    }
+
+    protected abstract void encode(int lineNumber, int startIndex, String line, int end) throws IOException;
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /** Bytes handed to the channel so far; call {@link #flush} first for an exact total. */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /** Makes room for at least {@code bytes} more bytes in the buffer. */
+    protected final void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    /** Number of bytes {@code text[from, to)} takes in UTF-8; unpaired surrogates count as one byte. */
+    protected static int utf8Length(String text, int from, int to) {
+        int length = to - from;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                if (c < 0x800) {
+                    length += 1;
+                } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    length += 2;
+                    i++;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 2;
+                }
+            }
+        }
+        return length;
+    }
+
+    /** Encodes one non-ASCII character, or a surrogate pair, and returns the index of the next one. */
+    protected final int putNonAscii(String text, int i, int to) throws IOException {
+        ensure(4);
+        char c = text.charAt(i);
+        if (c < 0x800) {
+            buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+            int cp = Character.toCodePoint(c, text.charAt(i + 1));
+            buffer.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                    .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+            return i + 2;
+        } else if (Character.isSurrogate(c)) {
+            buffer.put(REPLACEMENT);
+        } else {
+            buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+        }
+        return i + 1;
+    }
+
+    /** Writes out everything buffered. */
+    public void flush() throws IOException {
+        drain();
+    }
+
+    /** Flushes and closes the channel. */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
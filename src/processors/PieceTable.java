@@ -0,0 +1,317 @@
+package src.processors;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Line-based piece table over the lines of a loaded file. The original lines are
+ * never copied: a revision is a short array of pieces, each a run of lines taken
+ * either from the original list or from the lines added by one edit, together
+ * with the first line number of every piece. An edit builds the next revision
+ * from the pieces of the current one, so it costs time in proportion to the
+ * pieces and edited lines rather than to the file. Revisions are immutable and
+ * kept in a history, so undo and redo only move the current position.
+ * When scattered edits leave fewer than {@value #MIN_LINES_PER_PIECE} lines per
+ * piece on average, the revision is flattened into one array of line references
+ * (the strings themselves are shared), so lookups stay cheap for full scans.
+ *
+ * <p>The history keeps at most {@value #MAX_UNDO_STEPS} undo steps and drops the
+ * oldest revisions once the memory they hold (added lines and flattened arrays,
+ * estimated) passes {@value #MAX_HISTORY_BYTES} bytes, so repeated large edits
+ * do not grow memory without bound. The current revision is always kept.
+ */
+public class PieceTable {
+    private static final int MIN_LINES_PER_PIECE = 32;
+    private static final int MAX_UNDO_STEPS = 100;
+    private static final long MAX_HISTORY_BYTES = 256L * 1024 * 1024;
+    private static final long REFERENCE_BYTES = 8;
+    private static final long STRING_OVERHEAD_BYTES = 40;
+
+    private final List<String> base;
+    private final List<Revision> history = new ArrayList<>();
+    private volatile Revision current;
+    private int position;
+    private int nextId = 1;
+    private long historyBytes;
+
+    public PieceTable(List<String> base) {
+        this.base = base;
+        Piece[] pieces = base.isEmpty() ? new Piece[0] : new Piece[] { new Piece(base, 0, base.size()) };
+        current = new Revision(0, pieces, 0, 0);
+        history.add(current);
+    }
+
+    /** The lines this table was built over. */
+    public List<String> getBase() {
+        return base;
+    }
+
+    /** The current revision; it stays valid and unchanged however the table is edited later. */
+    public Revision getCurrent() {
+        return current;
+    }
+
+    /**
+     * Replaces single lines. Indexes are 0-based, strictly ascending and refer to
+     * the current revision; {@code texts} holds the new text of each line in the
+     * same order. Runs of adjacent lines become one piece. Returns false, and
+     * records nothing, when there are no lines to replace.
+     */
+    public synchronized boolean replaceLines(int[] lineIndexes, List<String> texts) {
+        if (lineIndexes.length != texts.size()) {
+            throw new IllegalArgumentException("Expected " + lineIndexes.length + " texts, got " + texts.size());
+        }
+        if (lineIndexes.length == 0) {
+            return false;
+        }
+        List<String> added = List.copyOf(texts);
+        List<Edit> edits = new ArrayList<>();
+        int runStart = 0;
+        for (int i = 1; i <= lineIndexes.length; i++) {
+            if (i == lineIndexes.length || lineIndexes[i] != lineIndexes[i - 1] + 1) {
+                int count = i - runStart;
+                edits.add(new Edit(lineIndexes[runStart], count, runStart, count));
+                runStart = i;
+            }
+        }
+        commit(edits, added);
+        return true;
+    }
+
+    /** Inserts lines before line {@code at} (0-based); {@code at} may equal the line count to append. */
+    public synchronized boolean insertLines(int at, List<String> lines) {
+        if (lines.isEmpty()) {
+            return false;
+        }
+        commit(List.of(new Edit(at, 0, 0, lines.size())), List.copyOf(lines));
+        return true;
+    }
+
+    /** Deletes {@code count} lines starting at line {@code from} (0-based). */
+    public synchronized boolean deleteLines(int from, int count) {
+        if (count <= 0) {
+            return false;
+        }
+        commit(List.of(new Edit(from, count, 0, 0)), Collections.emptyList());
+        return true;
+    }
+
+    /** Steps back one revision; returns false if there is nothing to undo. */
+    public synchronized boolean undo() {
+        if (position == 0) {
+            return false;
+        }
+        current = history.get(--position);
+        return true;
+    }
+
+    /** Steps forward to the revision last undone; returns false if there is nothing to redo. */
+    public synchronized boolean redo() {
+        if (position == history.size() - 1) {
+            return false;
+        }
+        current = history.get(++position);
+        return true;
+    }
+
+    public synchronized boolean canUndo() {
+        return position > 0;
+    }
+
+    public synchronized boolean canRedo() {
+        return position < history.size() - 1;
+    }
+
+    /**
+     * Builds and publishes the revision with the edits applied to the current one.
+     * Edits must be ascending and must not overlap; lines between them are carried
+     * over as slices of the existing pieces. Revisions after the current position
+     * can no longer be redone.
+     */
+    private void commit(List<Edit> edits, List<String> added) {
+        Revision revision = current;
+        List<Piece> pieces = new ArrayList<>(revision.pieces.length + 2 * edits.size() + 1);
+        int line = 0;
+        long characterDelta = revision.characterDelta;
+        long retainedBytes = 0;
+        for (Edit edit : edits) {
+            if (edit.line() < line || edit.line() + edit.removed() > revision.size()) {
+                throw new IllegalArgumentException("Edit at line " + (edit.line() + 1) + " is out of order or range");
+            }
+            revision.copy(line, edit.line(), pieces);
+            for (int i = edit.line(); i < edit.line() + edit.removed(); i++) {
+                characterDelta -= revision.line(i).length();
+            }
+            if (edit.inserted() > 0) {
+                append(pieces, new Piece(added, edit.addedStart(), edit.inserted()));
+                for (int i = edit.addedStart(); i < edit.addedStart() + edit.inserted(); i++) {
+                    characterDelta += added.get(i).length();
+                    retainedBytes += STRING_OVERHEAD_BYTES + 2L * added.get(i).length();
+                }
+            }
+            line = edit.line() + edit.removed();
+        }
+        revision.copy(line, revision.size(), pieces);
+        int size = 0;
+        for (Piece piece : pieces) {
+            size += piece.length();
+        }
+        if (pieces.size() > 1 && (long) pieces.size() * MIN_LINES_PER_PIECE > size) {
+            pieces = List.of(flatten(pieces, size));
+            retainedBytes += REFERENCE_BYTES * size;
+        }
+
+        List<Revision> undone = history.subList(position + 1, history.size());
+        for (Revision r : undone) {
+            historyBytes -= r.retainedBytes;
+        }
+        undone.clear();
+        Revision next = new Revision(nextId++, pieces.toArray(new Piece[0]), characterDelta, retainedBytes);
+        history.add(next);
+        historyBytes += retainedBytes;
+        position++;
+        current = next;
+        trimHistory();
+    }
+
+    /** Drops the oldest revisions beyond the undo limit or the memory budget. */
+    private void trimHistory() {
+        while (position > 0 && (position > MAX_UNDO_STEPS || historyBytes > MAX_HISTORY_BYTES)) {
+            historyBytes -= history.remove(0).retainedBytes;
+            position--;
+        }
+    }
+
+    private static Piece flatten(List<Piece> pieces, int size) {
+        String[] lines = new String[size];
+        int line = 0;
+        for (Piece piece : pieces) {
+            for (int i = 0; i < piece.length(); i++) {
+                lines[line++] = piece.source().get(piece.start() + i);
+            }
+        }
+        return new Piece(Arrays.asList(lines), 0, size);
+    }
+
+    /** Adds a piece, merging it into the previous one when it continues the same run. */
+    private static void append(List<Piece> pieces, Piece piece) {
+        if (!pieces.isEmpty()) {
+            Piece last = pieces.get(pieces.size() - 1);
+            if (last.source() == piece.source() && last.start() + last.length() == piece.start()) {
+                pieces.set(pieces.size() - 1, new Piece(last.source(), last.start(), last.length() + piece.length()));
+                return;
+            }
+        }
+        pieces.add(piece);
+    }
+
+    /**
+     * One immutable state of the document. Line lookup is a binary search over the
+     * piece offsets, which are computed once when the revision is built.
+     */
+    public static final class Revision {
+        private final int id;
+        private final Piece[] pieces;
+        private final int[] offsets;
+        private final long characterDelta;
+        private final long retainedBytes;
+        private final List<String> lines;
+
+        private Revision(int id, Piece[] pieces, long characterDelta, long retainedBytes) {
+            this.id = id;
+            this.pieces = pieces;
+            this.characterDelta = characterDelta;
+            this.retainedBytes = retainedBytes;
+            this.offsets = new int[pieces.length + 1];
+            for (int p = 0; p < pieces.length; p++) {
+                offsets[p + 1] = offsets[p] + pieces[p].length();
+            }
+            this.lines = pieces.length == 1 && pieces[0].start() == 0
+                    && pieces[0].length() == pieces[0].source().size()
+                    ? Collections.unmodifiableList(pieces[0].source())
+                    : new Lines();
+        }
+
+        /** 0 for the document as loaded; every edit gets a new id, and undo returns to an earlier one. */
+        public int getId() {
+            return id;
+        }
+
+        /** The lines of this revision as a read-only random-access list. */
+        public List<String> getLines() {
+            return lines;
+        }
+
+        public int size() {
+            return offsets[pieces.length];
+        }
+
+        public int getPieceCount() {
+            return pieces.length;
+        }
+
+        /** Characters added by edits minus characters removed, relative to the document as loaded. */
+        public long getCharacterDelta() {
+            return characterDelta;
+        }
+
+        private String line(int index) {
+            int p = pieceAt(index);
+            Piece piece = pieces[p];
+            return piece.source().get(piece.start() + index - offsets[p]);
+        }
+
+        private int pieceAt(int index) {
+            int low = 0;
+            int high = pieces.length - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (offsets[mid] <= index) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return low;
+        }
+
+        /** Appends the pieces covering lines [from, to) of this revision. */
+        private void copy(int from, int to, List<Piece> out) {
+            if (from >= to) {
+                return;
+            }
+            for (int p = pieceAt(from); p < pieces.length && offsets[p] < to; p++) {
+                Piece piece = pieces[p];
+                int skip = Math.max(0, from - offsets[p]);
+                int end = Math.min(piece.length(), to - offsets[p]);
+                append(out, new Piece(piece.source(), piece.start() + skip, end - skip));
+            }
+        }
+
+        private final class Lines extends AbstractList<String> implements RandomAccess {
+            @Override
+            public String get(int index) {
+                if (index < 0 || index >= size()) {
+                    throw new IndexOutOfBoundsException("Line " + index + " of " + size());
+                }
+                return line(index);
+            }
+
+            @Override
+            public int size() {
+                return Revision.this.size();
+            }
+        }
+    }
+
+    private record Piece(List<String> source, int start, int length) {
+    }
+
+    /** Removes {@code removed} lines at {@code line} and inserts {@code inserted} added lines from {@code addedStart}. */
+    private record Edit(int line, int removed, int addedStart, int inserted) {
+    }
+}
@@ -0,0 +1,142 @@
+package src.processors;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reads a source stream on a background thread into a bounded ring of buffers,
+ * so that producing the bytes (e.g. inflating gzip) overlaps with consuming them.
+ */
+public class PipelinedInputStream extends InputStream {
+    private static final Chunk END = new Chunk(0);
+
+    private final InputStream source;
+    private final BlockingQueue<Chunk> free;
+    private final BlockingQueue<Chunk> filled;
+    private final Thread producer;
+
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private Chunk current;
+    private int position;
+    private boolean finished;
+
+    public PipelinedInputStream(InputStream source, int bufferCount, int bufferSize) {
+        if (bufferCount < 1 || bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer count and size must be positive");
+        }
+        this.source = source;
+        this.free = new ArrayBlockingQueue<>(bufferCount);
+        this.filled = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            free.add(new Chunk(bufferSize));
+        }
+        this.producer = new Thread(this::produce, "pipelined-reader");
+        this.producer.setDaemon(true);
+        this.producer.start();
+    }
+
+    private void produce() {
+        try {
+            while (!closed) {
+                Chunk chunk = free.take();
+                int n = source.readNBytes(chunk.data, 0, chunk.data.length);
+                if (n == 0) {
+                    free.put(chunk);
+                    break;
+                }
+                chunk.length = n;
+                filled.put(chunk);
+                if (n < chunk.data.length) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            filled.offer(END);
+        }
+    }
+
+    private boolean fill() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (current != null) {
+            free.offer(current);
+            current = null;
+        }
+        try {
+            Chunk next = filled.take();
+            if (next == END) {
+                finished = true;
+                if (failure != null) {
+                    throw failure;
+                }
+                return false;
+            }
+            current = next;
+            position = 0;
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for data");
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ((current == null || position >= current.length) && !fill()) {
+            return -1;
+        }
+        return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if ((current == null || position >= current.length) && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current.data, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.length - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        producer.interrupt();
+        try {
+            producer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        source.close();
+    }
+
+    private static final class Chunk {
+        final byte[] data;
+        int length;
+
+        Chunk(int size) {
+            this.data = new byte[size];
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package src.processors;
+
+import java.util.Arrays;
+
+/**
+ * Postings of one term: the sorted, distinct line numbers containing it and, for
+ * each of those lines, the token position, character offset and length of each
+ * of its occurrences.
+ */
+public class PostingList {
+    private int[] lines = new int[4];
+    private int[] firstOccurrence = new int[5];
+    private int lineCount;
+    private int maxTermFrequency;
+
+    private int[] positions = new int[4];
+    private int[] offsets = new int[4];
+    private int[] lengths = new int[4];
+    private int occurrenceCount;
+
+    void add(int line, int position, int offset, int length) {
+        if (lineCount == 0 || lines[lineCount - 1] != line) {
+            if (lineCount == lines.length) {
+                lines = Arrays.copyOf(lines, lineCount * 2);
+                firstOccurrence = Arrays.copyOf(firstOccurrence, lineCount * 2 + 1);
+            }
+            lines[lineCount] = line;
+            firstOccurrence[lineCount] = occurrenceCount;
+            lineCount++;
+        }
+
+        if (occurrenceCount == offsets.length) {
+            positions = Arrays.copyOf(positions, occurrenceCount * 2);
+            offsets = Arrays.copyOf(offsets, occurrenceCount * 2);
+            lengths = Arrays.copyOf(lengths, occurrenceCount * 2);
+        }
+        positions[occurrenceCount] = position;
+        offsets[occurrenceCount] = offset;
+        lengths[occurrenceCount] = length;
+        occurrenceCount++;
+        firstOccurrence[lineCount] = occurrenceCount;
+        maxTermFrequency = Math.max(maxTermFrequency, occurrenceCount - firstOccurrence[lineCount - 1]);
+    }
+
+    void trim() {
+        lines = Arrays.copyOf(lines, lineCount);
+        firstOccurrence = Arrays.copyOf(firstOccurrence, lineCount + 1);
+        positions = Arrays.copyOf(positions, occurrenceCount);
+        offsets = Arrays.copyOf(offsets, occurrenceCount);
+        lengths = Arrays.copyOf(lengths, occurrenceCount);
+    }
+
+    /** Number of distinct lines containing the term (its document frequency). */
+    public int size() {
+        return lineCount;
+    }
+
+    public int lineAt(int i) {
+        return lines[i];
+    }
+
+    /** Sorted line numbers; callers must not modify the returned array. */
+    public int[] lines() {
+        return lines.length == lineCount ? lines : Arrays.copyOf(lines, lineCount);
+    }
+
+    /** Number of occurrences on the i-th posting line. */
+    public int termFrequency(int i) {
+        return firstOccurrence[i + 1] - firstOccurrence[i];
+    }
+
+    /** Highest number of occurrences on any single line. */
+    public int getMaxTermFrequency() {
+        return maxTermFrequency;
+    }
+
+    /** Index of the first occurrence on the i-th posting line. */
+    public int occurrenceStart(int i) {
+        return firstOccurrence[i];
+    }
+
+    /** Index one past the last occurrence on the i-th posting line. */
+    public int occurrenceEnd(int i) {
+        return firstOccurrence[i + 1];
+    }
+
+    /** Word ordinal of the occurrence within its line, counting from 0. */
+    public int positionAt(int occurrence) {
+        return positions[occurrence];
+    }
+
+    public int offsetAt(int occurrence) {
+        return offsets[occurrence];
+    }
+
+    public int lengthAt(int occurrence) {
+        return lengths[occurrence];
+    }
+
+    /**
+     * Returns the first posting index at or after {@code from} whose line is
+     * {@code >= target}, or {@link #size()} if there is none.
+     */
+    public int advance(int from, int target) {
+        return gallop(lines, lineCount, from, target);
+    }
+
+    /**
+     * Galloping search over a sorted array: probes at exponentially growing steps
+     * from {@code from}, then binary searches the bracketed range.
+     */
+    public static int gallop(int[] values, int size, int from, int target) {
+        if (from >= size || values[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        int high = from + step;
+        while (high < size && values[high] < target) {
+            low = high;
+            step <<= 1;
+            high = from + step;
+        }
+        high = Math.min(high, size);
+
+        while (low + 1 < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < target) {
+                low = mid;
+            } else {
+                high = mid;
+            }
+        }
+        return high;
+    }
+}
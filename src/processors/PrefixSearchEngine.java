@@ -7,22 +7,32 @@ class TrieNode {
     Map<Character, TrieNode> children = new HashMap<>();
     List<Occurrence> occurrences = new ArrayList<>(); 
     boolean isEndOfWord = false;
+    int bestFrequency; // highest word frequency in this subtree
 }
 
 public class PrefixSearchEngine {
     private final TrieNode root = new TrieNode();
+    private TrieNode[] path = new TrieNode[32];
 
     public void insertWord(String word, int line, int index) {
         if (word == null || word.isEmpty()) return;
         
         TrieNode current = root;
+        String key = word.toLowerCase();
+        if (path.length < key.length() + 1) path = Arrays.copyOf(path, key.length() + 1);
+        path[0] = root;
         
-        for (char l : word.toLowerCase().toCharArray()) {
-            current = current.children.computeIfAbsent(l, k -> new TrieNode());
+        for (int i = 0; i < key.length(); i++) {
+            current = current.children.computeIfAbsent(key.charAt(i), k -> new TrieNode());
+            path[i + 1] = current;
         }
         current.isEndOfWord = true;
         
         current.occurrences.add(new Occurrence(line, index, word));
+        int frequency = current.occurrences.size();
+        for (int i = key.length(); i >= 0 && path[i].bestFrequency < frequency; i--) {
+            path[i].bestFrequency = frequency;
+        }
     }
 
     public List<Occurrence> searchPrefix(String prefix) {
@@ -47,4 +57,59 @@ public class PrefixSearchEngine {
             findAllOccurrences(child, results);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * The {@code limit} most frequent words starting with {@code prefix}, most
+     * frequent first (ties in alphabetical order). Every node knows the highest
+     * word frequency below it, so a best-first walk reaches the answers without
+     * visiting the rest of the subtree: the cost depends on the prefix length and
+     * the limit, not on the vocabulary.
+     */
+    public List<Completion> complete(String prefix, int limit) {
+        if (prefix == null || prefix.isEmpty() || limit <= 0) return Collections.emptyList();
+
+        String key = prefix.toLowerCase();
+        TrieNode start = root;
+        for (char l : key.toCharArray()) {
+            start = start.children.get(l);
+            if (start == null) return Collections.emptyList();
+        }
+
+        // Candidates are subtrees (ranked by their best word) or single words.
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(start, key, start.bestFrequency, false));
+        List<Completion> completions = new ArrayList<>(limit);
+        while (!queue.isEmpty() && completions.size() < limit) {
+            Candidate candidate = queue.poll();
+            if (candidate.isWord) {
+                completions.add(new Completion(candidate.text, candidate.frequency));
+                continue;
+            }
+            TrieNode node = candidate.node;
+            if (node.isEndOfWord) {
+                queue.add(new Candidate(null, candidate.text, node.occurrences.size(), true));
+            }
+            for (Map.Entry<Character, TrieNode> child : node.children.entrySet()) {
+                TrieNode next = child.getValue();
+                queue.add(new Candidate(next, candidate.text + child.getKey(), next.bestFrequency, false));
+            }
+        }
+        return completions;
+    }
+
+    /** A suggested word and how often it occurs in the file. */
+    public record Completion(String word, int frequency) {
+    }
+
+    private record Candidate(TrieNode node, String text, int frequency, boolean isWord)
+            implements Comparable<Candidate> {
+        @Override
+        public int compareTo(Candidate other) {
+            if (frequency != other.frequency) return Integer.compare(other.frequency, frequency);
+            // A subtree's words all sort at or after its text, so text order keeps ties alphabetical.
+            int byText = text.compareTo(other.text);
+            if (byText != 0) return byText;
+            return isWord == other.isWord ? 0 : isWord ? -1 : 1;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package src.processors;
+
+import java.util.List;
+
+/**
+ * Parsed boolean query tree. Terms are lowercased words as stored in the
+ * {@link InvertedIndex}.
+ */
+public sealed interface QueryNode {
+
+    record Term(String word) implements QueryNode {
+    }
+
+    record Phrase(List<String> words) implements QueryNode {
+    }
+
+    /** Both words on one line, at most {@code distance} word positions apart. */
+    record Near(String left, String right, int distance) implements QueryNode {
+    }
+
+    record And(List<QueryNode> children) implements QueryNode {
+    }
+
+    record Or(List<QueryNode> children) implements QueryNode {
+    }
+
+    record Not(QueryNode child) implements QueryNode {
+    }
+}
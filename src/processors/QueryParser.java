@@ -0,0 +1,182 @@
+package src.processors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recursive-descent parser for boolean queries.
+ *
+ * <pre>
+ * query   := or
+ * or      := and ( "OR" and )*
+ * and     := unary ( ["AND"] unary )*
+ * unary   := "NOT" unary | near
+ * near    := primary ( "NEAR/"k primary )*
+ * primary := "(" or ")" | '"' word+ '"' | word
+ * </pre>
+ *
+ * {@code a NEAR/k b} matches lines where both words occur at most k word positions
+ * apart, in either order. Operators must be upper case; adjacent terms are
+ * combined with AND. Words are normalized the same way {@link TextProcessor}
+ * indexes them.
+ */
+public class QueryParser {
+    private static final String NEAR_PREFIX = "NEAR/";
+
+    private final List<String> tokens;
+    private int pos;
+
+    private QueryParser(List<String> tokens) {
+        this.tokens = tokens;
+    }
+
+    public static QueryNode parse(String query) {
+        if (query == null || query.trim().isEmpty()) {
+            throw new IllegalArgumentException("Query cannot be empty");
+        }
+        QueryParser parser = new QueryParser(tokenize(query));
+        QueryNode node = parser.parseOr();
+        if (parser.pos < parser.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected '" + parser.tokens.get(parser.pos) + "'");
+        }
+        return node;
+    }
+
+    private QueryNode parseOr() {
+        List<QueryNode> children = new ArrayList<>();
+        children.add(parseAnd());
+        while (accept("OR")) {
+            children.add(parseAnd());
+        }
+        return children.size() == 1 ? children.get(0) : new QueryNode.Or(children);
+    }
+
+    private QueryNode parseAnd() {
+        List<QueryNode> children = new ArrayList<>();
+        children.add(parseUnary());
+        while (pos < tokens.size() && !peek("OR") && !peek(")")) {
+            accept("AND");
+            children.add(parseUnary());
+        }
+        return children.size() == 1 ? children.get(0) : new QueryNode.And(children);
+    }
+
+    private QueryNode parseUnary() {
+        if (accept("NOT")) {
+            return new QueryNode.Not(parseUnary());
+        }
+        return parseNear();
+    }
+
+    private QueryNode parseNear() {
+        QueryNode left = parsePrimary();
+        while (pos < tokens.size() && tokens.get(pos).startsWith(NEAR_PREFIX)) {
+            int distance = parseDistance(tokens.get(pos++));
+            QueryNode right = parsePrimary();
+            if (!(left instanceof QueryNode.Term l) || !(right instanceof QueryNode.Term r)) {
+                throw new IllegalArgumentException("NEAR operands must be single words");
+            }
+            left = new QueryNode.Near(l.word(), r.word(), distance);
+        }
+        return left;
+    }
+
+    private static int parseDistance(String token) {
+        try {
+            int distance = Integer.parseInt(token.substring(NEAR_PREFIX.length()));
+            if (distance < 1) {
+                throw new IllegalArgumentException("NEAR distance must be at least 1");
+            }
+            return distance;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid NEAR operator '" + token + "'. Use NEAR/<k>");
+        }
+    }
+
+    private QueryNode parsePrimary() {
+        if (pos >= tokens.size()) {
+            throw new IllegalArgumentException("Unexpected end of query");
+        }
+        String token = tokens.get(pos++);
+
+        if (token.equals("(")) {
+            QueryNode node = parseOr();
+            if (!accept(")")) {
+                throw new IllegalArgumentException("Missing ')'");
+            }
+            return node;
+        }
+        if (token.startsWith("\"")) {
+            List<String> words = new ArrayList<>();
+            for (String part : token.substring(1).split("\\s+")) {
+                String word = normalize(part);
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+            if (words.isEmpty()) {
+                throw new IllegalArgumentException("Empty phrase");
+            }
+            return words.size() == 1 ? new QueryNode.Term(words.get(0)) : new QueryNode.Phrase(words);
+        }
+        if (token.equals(")") || isOperator(token) || token.startsWith(NEAR_PREFIX)) {
+            throw new IllegalArgumentException("Unexpected '" + token + "'");
+        }
+
+        String word = normalize(token);
+        if (word.isEmpty()) {
+            throw new IllegalArgumentException("Term '" + token + "' has no letters or digits");
+        }
+        return new QueryNode.Term(word);
+    }
+
+    private boolean peek(String token) {
+        return pos < tokens.size() && tokens.get(pos).equals(token);
+    }
+
+    private boolean accept(String token) {
+        if (peek(token)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean isOperator(String token) {
+        return token.equals("AND") || token.equals("OR") || token.equals("NOT");
+    }
+
+    private static String normalize(String word) {
+        return word.replaceAll("[^a-zA-Z0-9]", "").toLowerCase();
+    }
+
+    /** Splits into words, parentheses and quoted phrases (kept with a leading quote). */
+    private static List<String> tokenize(String query) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '(' || c == ')') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (c == '"') {
+                int end = query.indexOf('"', i + 1);
+                if (end == -1) {
+                    throw new IllegalArgumentException("Unterminated phrase");
+                }
+                tokens.add(query.substring(i, end));
+                i = end + 1;
+            } else {
+                int start = i;
+                while (i < query.length() && !Character.isWhitespace(query.charAt(i))
+                        && "()\"".indexOf(query.charAt(i)) == -1) {
+                    i++;
+                }
+                tokens.add(query.substring(start, i));
+            }
+        }
+        return tokens;
+    }
+}
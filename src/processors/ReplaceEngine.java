@@ -0,0 +1,47 @@
+package src.processors;
+
+import java.io.IOException;
+
+/**
+ * Rewrites lines with every match of one keyword replaced. Matches are found
+ * once per line with a {@link KeywordMatcher}; the text between them and the
+ * replacement are appended to the output as slices, and matches are counted
+ * along the way. For prefix matching the replaced span is the whole word, as
+ * reported by prefix search.
+ */
+public class ReplaceEngine {
+    private final KeywordMatcher matcher;
+    private final boolean replaceWholeWord;
+    private final String replacement;
+
+    public ReplaceEngine(KeywordMatcher matcher, boolean replaceWholeWord, String replacement) {
+        this.matcher = matcher;
+        this.replaceWholeWord = replaceWholeWord;
+        this.replacement = replacement;
+    }
+
+    /**
+     * Writes the rewritten line, without a line separator, and returns the number of
+     * replacements. The engine holds no per-call state, so threads may share it.
+     */
+    public int replaceLine(String line, Appendable out) throws IOException {
+        int count = 0;
+        int copied = 0;
+        int index = 0;
+        while ((index = matcher.find(line, index)) != -1) {
+            int end = index + matcher.length();
+            if (replaceWholeWord) {
+                while (end < line.length() && Character.isLetterOrDigit(line.charAt(end))) {
+                    end++;
+                }
+            }
+            out.append(line, copied, index);
+            out.append(replacement);
+            copied = end;
+            count++;
+            index += matcher.length();
+        }
+        out.append(line, copied, line.length());
+        return count;
+    }
+}
@@ -1,31 +1,100 @@
 package src.processors;
 import java.io.*;
 import java.util.*;
+import java.util.zip.GZIPInputStream;
 
 public class TextProcessor {
-    private List<String> lines = new ArrayList<>();
-    
-    private PrefixSearchEngine prefixEngine = new PrefixSearchEngine();
+    private static final int GZIP_MAGIC = 0x8b1f;
+    private static final int PIPE_BUFFER_COUNT = 8;
+    private static final int PIPE_BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_INTERVAL_LINES = 16 * 1024;
 
-    public void loadFile(String path) throws IOException {
-        lines.clear(); 
-        BufferedReader br = new BufferedReader(new FileReader(path));
+    private volatile IndexSnapshot snapshot = IndexSnapshot.EMPTY;
+
+    private long generation;
+
+    /**
+     * Reads and indexes a file into a new snapshot, then publishes it. Readers keep
+     * using the previous snapshot until the swap and never see a partial load; if
+     * reading fails the previous snapshot stays current.
+     */
+    public IndexSnapshot loadFile(String path) throws IOException {
+        return loadFile(path, LoadListener.NONE);
+    }
+
+    /**
+     * Loads like {@link #loadFile(String)}, reporting progress to {@code listener}
+     * every {@value #PROGRESS_INTERVAL_LINES} lines and once at the end. A
+     * listener can abort the load by throwing; nothing is published then, so the
+     * previous snapshot stays current.
+     */
+    public synchronized IndexSnapshot loadFile(String path, LoadListener listener) throws IOException {
+        List<String> lines = new ArrayList<>();
+        PrefixSearchEngine prefixEngine = new PrefixSearchEngine();
+        InvertedIndex wordIndex = new InvertedIndex();
+        int characterCount = 0;
         String line;
         int lineNum = 1;
-        
-        while ((line = br.readLine()) != null) {
-            lines.add(line);
-            
-            indexLine(line, lineNum); 
-            lineNum++;
+
+        long totalBytes = new File(path).length();
+        CountingInputStream counter = new CountingInputStream(new FileInputStream(path));
+        try (BufferedReader br = openReader(counter)) {
+            while ((line = br.readLine()) != null) {
+                lines.add(line);
+                characterCount += line.length();
+
+                indexLine(line, lineNum, prefixEngine, wordIndex);
+                if (lineNum % PROGRESS_INTERVAL_LINES == 0) {
+                    listener.progress(counter.count, totalBytes, lineNum);
+                }
+                lineNum++;
+            }
+        }
+        wordIndex.trim();
+        // The final report comes last, so a listener's abort is honoured up to the publish.
+        listener.progress(totalBytes, totalBytes, lines.size());
+
+        IndexSnapshot loaded = new IndexSnapshot(path, lines, prefixEngine, wordIndex, characterCount, ++generation);
+        snapshot = loaded;
+        return loaded;
+    }
+
+    /**
+     * Opens a file for line reading. Gzip input (including concatenated members)
+     * is detected by its magic bytes and inflated on a background thread.
+     */
+    public static BufferedReader openReader(String path) throws IOException {
+        return openReader(new FileInputStream(path));
+    }
+
+    private static BufferedReader openReader(InputStream file) throws IOException {
+        InputStream in = new BufferedInputStream(file, PIPE_BUFFER_SIZE);
+        try {
+            if (isGzip(in)) {
+                GZIPInputStream gzip = new GZIPInputStream(in, PIPE_BUFFER_SIZE);
+                in = new PipelinedInputStream(gzip, PIPE_BUFFER_COUNT, PIPE_BUFFER_SIZE);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
         }
-        br.close();
+        return new BufferedReader(new InputStreamReader(in), PIPE_BUFFER_SIZE);
     }
 
-    private void indexLine(String line, int lineNum) {
+    private static boolean isGzip(InputStream in) throws IOException {
+        in.mark(2);
+        int b1 = in.read();
+        int b2 = in.read();
+        in.reset();
+        return b1 != -1 && b2 != -1 && ((b2 << 8) | b1) == GZIP_MAGIC;
+    }
+
+    private static void indexLine(String line, int lineNum, PrefixSearchEngine prefixEngine,
+                                  InvertedIndex wordIndex) {
         
         String[] words = line.split("\\s+");
         int lastFoundIndex = 0;
+        int position = 0;
         
         for (String word : words) {
             
@@ -34,21 +103,93 @@ public class TextProcessor {
                 
                 int startIndex = line.indexOf(word, lastFoundIndex);
                 prefixEngine.insertWord(cleanWord, lineNum, startIndex);
+                indexWord(wordIndex, word, cleanWord, lineNum, position++, startIndex);
                 
                 lastFoundIndex = startIndex + word.length();
             }
         }
+        wordIndex.setLineLength(lineNum, position);
+    }
+
+    private static void indexWord(InvertedIndex wordIndex, String word, String cleanWord, int lineNum,
+                                  int position, int startIndex) {
+        int first = 0;
+        while (!isWordChar(word.charAt(first))) {
+            first++;
+        }
+        int last = word.length() - 1;
+        while (!isWordChar(word.charAt(last))) {
+            last--;
+        }
+        wordIndex.add(cleanWord, lineNum, position, startIndex + first, last - first + 1);
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    /** The most recently published snapshot; read it once per operation for a consistent view. */
+    public IndexSnapshot getSnapshot() {
+        return snapshot;
     }
 
     public List<String> getLines() {
-        return lines;
+        return snapshot.getLines();
     }
 
     public PrefixSearchEngine getPrefixEngine() {
-        return prefixEngine;
+        return snapshot.getPrefixEngine();
+    }
+
+    public InvertedIndex getWordIndex() {
+        return snapshot.getWordIndex();
     }
 
     public String normalize(String text) {
         return text.toLowerCase();
     }
-}
\ No newline at end of file
+
+    /**
+     * Receives load progress: bytes of the file read so far (compressed bytes for
+     * gzip input), the file size and the lines read.
+     */
+    @FunctionalInterface
+    public interface LoadListener {
+        LoadListener NONE = (bytesRead, totalBytes, lines) -> { };
+
+        void progress(long bytesRead, long totalBytes, int lines);
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        private volatile long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package src.services;
+
+import src.services.SearchService.SearchMode;
+import src.services.SearchService.SearchResult;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Asynchronous facade over a {@link SearchService}. Queries run on virtual
+ * threads when the runtime has them, otherwise on a pool of daemon threads
+ * bounded by the concurrency limit. At most {@code maxConcurrent} queries
+ * execute at once; the rest wait in a queue, without a thread and without
+ * blocking the caller, and start in submission order as permits free up.
+ *
+ * <p>Completing a returned future early, via {@code cancel}, {@code orTimeout}
+ * or {@code completeExceptionally}, cancels the underlying scan. Queries may
+ * run concurrently with each other and with a reload; each one sees a single
+ * consistent snapshot of the file.
+ */
+public class AsyncSearchService implements AutoCloseable {
+    private static final int DEFAULT_MAX_CONCURRENT = 64;
+    private static final long IDLE_THREAD_SECONDS = 60;
+
+    private final SearchService service;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private final Set<CancellationToken> liveTokens = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    public AsyncSearchService(SearchService service) {
+        this(service, DEFAULT_MAX_CONCURRENT);
+    }
+
+    public AsyncSearchService(SearchService service, int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("Concurrency limit must be at least 1");
+        }
+        this.service = service;
+        this.maxConcurrent = maxConcurrent;
+        this.permits = new Semaphore(maxConcurrent);
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        // one thread more than the permits, so a load never waits behind queries
+        this.executor = virtual != null ? virtual : newDaemonPool("async-search", maxConcurrent + 1);
+    }
+
+    /**
+     * Executor for handlers that block on queries, such as the HTTP server's:
+     * a virtual thread per task when the runtime has them, otherwise a pool of
+     * at most {@code maxThreads} daemon threads with the given name, with
+     * further tasks queued until a thread is free.
+     */
+    public static ExecutorService newHandlerExecutor(String threadName, int maxThreads) {
+        ExecutorService virtual = newVirtualThreadExecutor();
+        return virtual != null ? virtual : newDaemonPool(threadName, maxThreads);
+    }
+
+    /**
+     * Loads a file in the background. Queries keep running against the previous
+     * file until the new one is published. Loads do not take a query permit.
+     */
+    public CompletableFuture<SearchResult> loadFileAsync(String filePath) {
+        CompletableFuture<SearchResult> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(service.loadFile(filePath));
+                } catch (IOException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public CompletableFuture<SearchResult> searchAsync(String keyword, SearchMode mode, boolean caseInsensitive) {
+        return submit(token -> service.search(keyword, mode, caseInsensitive, token));
+    }
+
+    public CompletableFuture<SearchResult> countAsync(String keyword, SearchMode mode, boolean caseInsensitive) {
+        return submit(token -> service.count(keyword, mode, caseInsensitive, token));
+    }
+
+    public CompletableFuture<SearchResult> existsAsync(String keyword, SearchMode mode, boolean caseInsensitive) {
+        return submit(token -> service.exists(keyword, mode, caseInsensitive, token));
+    }
+
+    public CompletableFuture<SearchResult> queryAsync(String queryText) {
+        return submit(token -> service.query(queryText, token));
+    }
+
+    public CompletableFuture<SearchResult> rankAsync(String queryText, int topK) {
+        return submit(token -> service.rank(queryText, topK, token));
+    }
+
+    private CompletableFuture<SearchResult> submit(Function<CancellationToken, SearchResult> operation) {
+        return submit(operation, 0);
+    }
+
+    public SearchService getService() {
+        return service;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /** Number of queries currently holding a permit. */
+    public int getActiveCount() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /** Number of submitted queries waiting for a permit. */
+    public int getQueuedCount() {
+        return pending.size();
+    }
+
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Stops accepting queries and cancels those still running or waiting. A
+     * running query stops at its next cancellation check and completes with its
+     * partial result; a waiting one completes as cancelled without running.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+        for (CancellationToken token : liveTokens) {
+            token.cancel();
+        }
+        Pending next;
+        while ((next = pending.poll()) != null) {
+            next.future().cancel(false);
+        }
+    }
+
+    /**
+     * Runs any {@link SearchService} operation under the same admission control.
+     * With a positive timeout, counted from submission, the operation's token
+     * also stops at the deadline and the future completes normally with the
+     * partial, truncated result.
+     */
+    public CompletableFuture<SearchResult> submit(Function<CancellationToken, SearchResult> operation,
+                                                  long timeoutMillis) {
+        CancellationToken token = CancellationToken.withTimeout(timeoutMillis);
+        CompletableFuture<SearchResult> future = new CompletableFuture<>();
+        liveTokens.add(token);
+        future.whenComplete((result, error) -> {
+            liveTokens.remove(token);
+            if (error != null) {
+                token.cancel();
+            }
+        });
+        if (closed) {
+            future.completeExceptionally(new RejectedExecutionException("Search service is closed"));
+            return future;
+        }
+
+        pending.add(new Pending(() -> {
+            try {
+                if (!future.isDone()) {
+                    future.complete(operation.apply(token));
+                }
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+            }
+        }, future));
+        drain();
+        return future;
+    }
+
+    /**
+     * Starts a worker for each free permit while queries are queued. A worker
+     * runs queued queries until the queue is empty, then releases its permit
+     * and checks again, so a query queued while every permit was taken is
+     * always picked up, and no more than {@code maxConcurrent} threads run
+     * queries.
+     */
+    private void drain() {
+        while (!pending.isEmpty() && permits.tryAcquire()) {
+            try {
+                executor.execute(this::runPending);
+            } catch (RejectedExecutionException e) {
+                permits.release();
+                Pending next;
+                while ((next = pending.poll()) != null) {
+                    next.future().completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void runPending() {
+        try {
+            Pending next;
+            while (!closed && (next = pending.poll()) != null) {
+                next.task().run();
+            }
+        } finally {
+            permits.release();
+        }
+        if (!closed) {
+            drain();
+        }
+    }
+
+    /** A submitted query waiting for a permit. */
+    private record Pending(Runnable task, CompletableFuture<SearchResult> future) {
+    }
+
+    /** At most {@code maxThreads} daemon threads, which exit after a minute idle. */
+    private static ExecutorService newDaemonPool(String threadName, int maxThreads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(maxThreads, maxThreads,
+                IDLE_THREAD_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), task -> {
+                    Thread thread = new Thread(task, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Returns {@code Executors.newVirtualThreadPerTaskExecutor()} on runtimes that
+     * have it (Java 21+), or {@code null} so the caller can fall back to a pool.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | SecurityException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package src.services;
+
+import src.models.OccurrenceList;
+import src.processors.AhoCorasick;
+import src.services.SearchService.BatchQuery;
+import src.services.SearchService.SearchMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches the keywords of many batch queries that share one case setting with
+ * a single automaton. Each distinct keyword is one pattern; queries that use the
+ * same keyword in different modes share its candidates and differ only in which
+ * ones they keep. Candidates follow {@link SearchService#search}: per keyword
+ * they never overlap, and a rejected candidate still skips its own length.
+ */
+final class BatchMatcher {
+    private final boolean caseInsensitive;
+    private final AhoCorasick automaton;
+    private final int[][] consumers;
+    private final SearchMode[] modes;
+
+    BatchMatcher(List<BatchQuery> queries, List<Integer> selected, boolean caseInsensitive) {
+        this.caseInsensitive = caseInsensitive;
+        this.modes = new SearchMode[queries.size()];
+
+        Map<String, Integer> patternIds = new HashMap<>();
+        List<String> patterns = new ArrayList<>();
+        List<List<Integer>> users = new ArrayList<>();
+        for (int q : selected) {
+            BatchQuery query = queries.get(q);
+            if (query.caseInsensitive() != caseInsensitive) {
+                continue;
+            }
+            String pattern = caseInsensitive ? query.keyword().toLowerCase() : query.keyword();
+            int id = patternIds.computeIfAbsent(pattern, k -> {
+                patterns.add(k);
+                users.add(new ArrayList<>());
+                return patterns.size() - 1;
+            });
+            users.get(id).add(q);
+            modes[q] = query.mode();
+        }
+
+        this.automaton = patterns.isEmpty() ? null : new AhoCorasick(patterns);
+        this.consumers = new int[users.size()][];
+        for (int p = 0; p < users.size(); p++) {
+            consumers[p] = users.get(p).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /** Starts a scan that appends accepted occurrences to {@code results}, indexed by query. */
+    LineScan newScan(OccurrenceList[] results) {
+        return new LineScan(results);
+    }
+
+    /** Per-thread scan state; lines must be fed in increasing order. */
+    final class LineScan implements AhoCorasick.MatchHandler {
+        private final OccurrenceList[] results;
+        private final int[] nextAllowed;
+        private final int[] lastLine;
+        private int lineIndex;
+        private String line;
+        private String searchLine;
+
+        private LineScan(OccurrenceList[] results) {
+            this.results = results;
+            this.nextAllowed = new int[consumers.length];
+            this.lastLine = new int[consumers.length];
+            Arrays.fill(lastLine, -1);
+        }
+
+        void scan(int lineIndex, String line) {
+            if (automaton == null) {
+                return;
+            }
+            this.lineIndex = lineIndex;
+            this.line = line;
+            this.searchLine = caseInsensitive ? line.toLowerCase() : line;
+            automaton.findAll(searchLine, this);
+        }
+
+        @Override
+        public void match(int pattern, int start) {
+            if (lastLine[pattern] != lineIndex) {
+                lastLine[pattern] = lineIndex;
+                nextAllowed[pattern] = 0;
+            }
+            if (start < nextAllowed[pattern]) {
+                return;
+            }
+            int length = automaton.patternLength(pattern);
+            nextAllowed[pattern] = start + length;
+
+            for (int query : consumers[pattern]) {
+                switch (modes[query]) {
+                    case SUBSTRING -> results[query].add(lineIndex + 1, start,
+                            Math.min(start + length, line.length()) - start);
+                    case PREFIX -> {
+                        if (start == 0 || !Character.isLetterOrDigit(searchLine.charAt(start - 1))) {
+                            int end = start + length;
+                            while (end < line.length() && Character.isLetterOrDigit(line.charAt(end))) {
+                                end++;
+                            }
+                            results[query].add(lineIndex + 1, start, end - start);
+                        }
+                    }
+                    case WHOLE_WORD -> {
+                        int end = start + length;
+                        if ((start == 0 || !Character.isLetterOrDigit(searchLine.charAt(start - 1)))
+                                && (end == searchLine.length() || !Character.isLetterOrDigit(searchLine.charAt(end)))) {
+                            results[query].add(lineIndex + 1, start, Math.min(end, line.length()) - start);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
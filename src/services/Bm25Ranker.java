@@ -0,0 +1,158 @@
+package src.services;
+
+import src.processors.InvertedIndex;
+import src.processors.PostingList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Top-K BM25 ranking of lines over the word index. Each line is treated as a
+ * document. Evaluation is document-at-a-time with MaxScore pruning: terms whose
+ * combined upper bounds cannot lift a line into the current top K are only
+ * probed for lines the other terms already found, and those probes stop as soon
+ * as the remaining bounds cannot beat the threshold.
+ */
+public class Bm25Ranker {
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int CANCEL_CHECK_INTERVAL = 1024;
+
+    private final InvertedIndex index;
+    private final double averageLength;
+    private final int lineCount;
+
+    public Bm25Ranker(InvertedIndex index) {
+        this.index = index;
+        this.averageLength = Math.max(index.getAverageLineLength(), 1e-9);
+        this.lineCount = index.getLineCount();
+    }
+
+    public Ranking rank(List<String> words, int k) {
+        return rank(words, k, CancellationToken.NONE);
+    }
+
+    /** Ranks until done or until the token stops it, returning the best lines seen so far. */
+    public Ranking rank(List<String> words, int k, CancellationToken token) {
+        List<Cursor> cursors = new ArrayList<>();
+        long totalPostings = 0;
+        for (String word : words.stream().distinct().toList()) {
+            PostingList list = index.get(word);
+            if (list != null) {
+                cursors.add(new Cursor(list, idf(list.size()), list.getMaxTermFrequency()));
+                totalPostings += list.size();
+            }
+        }
+        if (cursors.isEmpty() || k <= 0) {
+            return new Ranking(new int[0], new double[0], 0, totalPostings);
+        }
+
+        cursors.sort(Comparator.comparingDouble(c -> c.upperBound));
+        int n = cursors.size();
+        double[] boundPrefix = new double[n + 1];
+        for (int i = 0; i < n; i++) {
+            boundPrefix[i + 1] = boundPrefix[i] + cursors.get(i).upperBound;
+        }
+
+        PriorityQueue<Scored> heap = new PriorityQueue<>(k + 1,
+                Comparator.comparingDouble(Scored::score).thenComparing(Scored::line, Comparator.reverseOrder()));
+        double threshold = 0;
+        int firstEssential = 0;
+        long scoredPostings = 0;
+        int iterations = 0;
+
+        while (firstEssential < n) {
+            if (iterations++ % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                break;
+            }
+            int line = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < n; i++) {
+                line = Math.min(line, cursors.get(i).line());
+            }
+            if (line == Integer.MAX_VALUE) {
+                break;
+            }
+
+            int length = index.getLineLength(line);
+            double score = 0;
+            for (int i = firstEssential; i < n; i++) {
+                Cursor cursor = cursors.get(i);
+                if (cursor.line() == line) {
+                    score += cursor.score(length);
+                    cursor.position++;
+                    scoredPostings++;
+                }
+            }
+            for (int i = firstEssential - 1; i >= 0; i--) {
+                if (score + boundPrefix[i + 1] <= threshold) {
+                    break;
+                }
+                Cursor cursor = cursors.get(i);
+                cursor.position = cursor.list.advance(cursor.position, line);
+                if (cursor.line() == line) {
+                    score += cursor.score(length);
+                    scoredPostings++;
+                }
+            }
+
+            if (heap.size() < k || score > threshold) {
+                heap.add(new Scored(line, score));
+                if (heap.size() > k) {
+                    heap.poll();
+                }
+                if (heap.size() == k) {
+                    threshold = heap.peek().score();
+                    while (firstEssential < n && boundPrefix[firstEssential + 1] <= threshold) {
+                        firstEssential++;
+                    }
+                }
+            }
+        }
+
+        Scored[] ranked = heap.toArray(new Scored[0]);
+        Arrays.sort(ranked, Comparator.comparingDouble(Scored::score).reversed().thenComparingInt(Scored::line));
+        int[] lines = new int[ranked.length];
+        double[] scores = new double[ranked.length];
+        for (int i = 0; i < ranked.length; i++) {
+            lines[i] = ranked[i].line();
+            scores[i] = ranked[i].score();
+        }
+        return new Ranking(lines, scores, scoredPostings, totalPostings);
+    }
+
+    private double idf(int documentFrequency) {
+        return Math.log(1 + (lineCount - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    private final class Cursor {
+        final PostingList list;
+        final double idf;
+        final double upperBound;
+        int position;
+
+        Cursor(PostingList list, double idf, int maxTermFrequency) {
+            this.list = list;
+            this.idf = idf;
+            this.upperBound = idf * maxTermFrequency * (K1 + 1) / (maxTermFrequency + K1 * (1 - B));
+        }
+
+        int line() {
+            return position < list.size() ? list.lineAt(position) : Integer.MAX_VALUE;
+        }
+
+        double score(int length) {
+            int tf = list.termFrequency(position);
+            return idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+        }
+    }
+
+    private record Scored(int line, double score) {
+    }
+
+    /** Ranked lines with their scores, and how many postings had to be scored. */
+    public record Ranking(int[] lines, double[] scores, long scoredPostings, long totalPostings) {
+    }
+}
@@ -0,0 +1,61 @@
+package src.services;
+
+/**
+ * Cooperative stop signal for a single search operation. A token is stopped
+ * once {@link #cancel()} is called or its optional deadline passes; scan loops
+ * poll {@link #shouldStop()} and return what they have found so far.
+ */
+public class CancellationToken {
+    /** Token that never stops; used by the overloads without a token. */
+    public static final CancellationToken NONE = new CancellationToken(false, 0);
+
+    private final boolean hasDeadline;
+    private final long deadlineNanos;
+    private volatile boolean cancelled;
+    private volatile boolean stopped;
+
+    private CancellationToken(boolean hasDeadline, long deadlineNanos) {
+        this.hasDeadline = hasDeadline;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /** Token that is stopped only by {@link #cancel()}. */
+    public static CancellationToken create() {
+        return new CancellationToken(false, 0);
+    }
+
+    /** Token that also stops once the timeout has elapsed. */
+    public static CancellationToken withTimeout(long timeoutMillis) {
+        if (timeoutMillis <= 0) {
+            return create();
+        }
+        return new CancellationToken(true, System.nanoTime() + timeoutMillis * 1_000_000);
+    }
+
+    public void cancel() {
+        if (this != NONE) {
+            cancelled = true;
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns true if the operation should stop, remembering that it did so the
+     * result can be reported as truncated.
+     */
+    public boolean shouldStop() {
+        if (cancelled || (hasDeadline && System.nanoTime() - deadlineNanos >= 0)) {
+            stopped = true;
+            return true;
+        }
+        return false;
+    }
+
+    /** Whether any check has asked the operation to stop. */
+    public boolean wasStopped() {
+        return stopped;
+    }
+}
@@ -0,0 +1,10 @@
+package src.services;
+
+import java.io.IOException;
+
+/** Pull-based source of input lines for the replace paths. */
+@FunctionalInterface
+interface LineSource {
+    /** Returns the next line, or {@code null} at the end. */
+    String next() throws IOException;
+}
@@ -0,0 +1,197 @@
+package src.services;
+
+import src.processors.ReplaceEngine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Replaces across line chunks on worker threads. The calling thread reads
+ * chunks, workers rewrite and encode each one into its own buffer, and the
+ * calling thread writes the buffers in input order. At most {@code window}
+ * chunks are in flight, which bounds memory and the reorder distance. Output
+ * goes to a temporary file next to the target that is renamed over it only
+ * when every chunk has been written, so readers of the target never see a
+ * partial file. The output keeps the permissions of the file it replaces, or
+ * gets the default ones (after the umask) when the target is new.
+ */
+class ParallelReplacer {
+    private static final int CHUNK_CHARS = 1024 * 1024;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final ExecutorService pool;
+    private final int window;
+
+    ParallelReplacer(ExecutorService pool, int parallelism) {
+        this.pool = pool;
+        this.window = Math.max(2, parallelism * 2);
+    }
+
+    /**
+     * Runs the replace and returns the number of replacements. If the token stops
+     * it, the temporary file is deleted, the target is left untouched and the
+     * count covers only the chunks processed.
+     */
+    long run(LineSource source, ReplaceEngine engine, Path target, boolean sync, CancellationToken token)
+            throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Path temp = createTemp(directory, target);
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>(window);
+        long replacements = 0;
+        boolean complete = false;
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                List<String> lines;
+                while (!token.shouldStop() && !(lines = readChunk(source)).isEmpty()) {
+                    List<String> chunk = lines;
+                    inFlight.add(pool.submit(() -> rewrite(chunk, engine)));
+                    if (inFlight.size() >= window) {
+                        replacements += writeNext(inFlight, channel);
+                    }
+                }
+                while (!inFlight.isEmpty()) {
+                    replacements += writeNext(inFlight, channel);
+                }
+                if (token.wasStopped()) {
+                    return replacements;
+                }
+                if (sync) {
+                    channel.force(true);
+                }
+            }
+            publish(temp, target);
+            complete = true;
+            if (sync) {
+                syncDirectory(directory);
+            }
+        } finally {
+            for (Future<Chunk> pending : inFlight) {
+                pending.cancel(true);
+            }
+            if (!complete) {
+                Files.deleteIfExists(temp);
+            }
+        }
+        return replacements;
+    }
+
+    /**
+     * Creates an empty temp file next to the target. It is created like any new
+     * file, so the umask applies, rather than with the owner-only mode of
+     * {@code Files.createTempFile}; an existing target's permissions are copied
+     * onto it so the rename does not change them.
+     */
+    private static Path createTemp(Path directory, Path target) throws IOException {
+        Path temp;
+        while (true) {
+            temp = directory.resolve("." + target.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                Files.newByteChannel(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE).close();
+                break;
+            } catch (FileAlreadyExistsException e) {
+                // name taken; try another
+            }
+        }
+        PosixFileAttributeView view = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+        if (view != null && Files.exists(target)) {
+            try {
+                view.setPermissions(Files.getPosixFilePermissions(target));
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+        }
+        return temp;
+    }
+
+    /** Makes the rename durable; skipped where directories cannot be opened, as on Windows. */
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private static List<String> readChunk(LineSource source) throws IOException {
+        List<String> lines = new ArrayList<>();
+        int chars = 0;
+        String line;
+        while (chars < CHUNK_CHARS && (line = source.next()) != null) {
+            lines.add(line);
+            chars += line.length() + 1;
+        }
+        return lines;
+    }
+
+    private static Chunk rewrite(List<String> lines, ReplaceEngine engine) throws IOException {
+        StringBuilder out = new StringBuilder(CHUNK_CHARS + CHUNK_CHARS / 8);
+        long count = 0;
+        for (String line : lines) {
+            count += engine.replaceLine(line, out);
+            out.append(LINE_SEPARATOR);
+        }
+        return new Chunk(encode(out), count);
+    }
+
+    private static ByteBuffer encode(CharSequence text) throws CharacterCodingException {
+        return Charset.defaultCharset().newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                .encode(CharBuffer.wrap(text));
+    }
+
+    private static long writeNext(ArrayDeque<Future<Chunk>> inFlight, FileChannel channel) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = inFlight.poll().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Replace interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+        }
+        while (chunk.bytes().hasRemaining()) {
+            channel.write(chunk.bytes());
+        }
+        return chunk.replacements();
+    }
+
+    /** Renames the finished temp file over the target, atomically where the file system allows. */
+    private static void publish(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private record Chunk(ByteBuffer bytes, long replacements) {
+    }
+}
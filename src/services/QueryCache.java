@@ -0,0 +1,119 @@
+package src.services;
+
+import src.models.Occurrence;
+import src.models.OccurrenceList;
+import src.services.SearchService.SearchMode;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Size-weighted LRU cache of search results. Entries are weighed by an estimate
+ * of their retained bytes and evicted least-recently-used first once the total
+ * exceeds the budget. All entries are dropped when a lookup arrives with a new
+ * generation. A put for any other generation comes from a search that started
+ * before the change and is dropped; generations are compared for equality, not
+ * order, because undo returns to an earlier revision.
+ */
+public class QueryCache {
+    private static final long ENTRY_OVERHEAD_BYTES = 128;
+    private static final long OCCURRENCE_BYTES = 64;
+
+    private final long maxWeightBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long generation;
+    private long weightBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public QueryCache(long maxWeightBytes) {
+        this.maxWeightBytes = maxWeightBytes;
+    }
+
+    public synchronized List<Occurrence> get(String keyword, SearchMode mode, boolean caseInsensitive,
+                                             long currentGeneration) {
+        syncGeneration(currentGeneration);
+        Entry entry = entries.get(new Key(keyword, mode, caseInsensitive));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.results();
+    }
+
+    public synchronized void put(String keyword, SearchMode mode, boolean caseInsensitive,
+                                 long currentGeneration, List<Occurrence> results) {
+        if (currentGeneration != generation) {
+            return;
+        }
+        long weight = weigh(keyword, results);
+        if (weight > maxWeightBytes) {
+            return;
+        }
+
+        Entry previous = entries.put(new Key(keyword, mode, caseInsensitive), new Entry(results, weight));
+        if (previous != null) {
+            weightBytes -= previous.weight();
+        }
+        weightBytes += weight;
+
+        Iterator<Entry> it = entries.values().iterator();
+        while (weightBytes > maxWeightBytes && it.hasNext()) {
+            weightBytes -= it.next().weight();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized CacheStats getStats() {
+        return new CacheStats(hits, misses, evictions, entries.size(), weightBytes, maxWeightBytes);
+    }
+
+    private void syncGeneration(long currentGeneration) {
+        if (currentGeneration != generation) {
+            entries.clear();
+            weightBytes = 0;
+            generation = currentGeneration;
+        }
+    }
+
+    private static long weigh(String keyword, List<Occurrence> results) {
+        long weight = ENTRY_OVERHEAD_BYTES + 2L * keyword.length();
+        if (results instanceof OccurrenceList) {
+            return weight + (long) results.size() * OccurrenceList.BYTES_PER_OCCURRENCE;
+        }
+        for (Occurrence occ : results) {
+            weight += OCCURRENCE_BYTES + 2L * occ.getFullWord().length();
+        }
+        return weight;
+    }
+
+    private record Key(String keyword, SearchMode mode, boolean caseInsensitive) {
+    }
+
+    private record Entry(List<Occurrence> results, long weight) {
+    }
+
+    public static class CacheStats {
+        public long hits;
+        public long misses;
+        public long evictions;
+        public int entryCount;
+        public long weightBytes;
+        public long maxWeightBytes;
+
+        public CacheStats(long hits, long misses, long evictions, int entryCount,
+                          long weightBytes, long maxWeightBytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entryCount = entryCount;
+            this.weightBytes = weightBytes;
+            this.maxWeightBytes = maxWeightBytes;
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package src.services;
+
+import src.models.Occurrence;
+import src.processors.InvertedIndex;
+import src.processors.PostingList;
+import src.processors.QueryNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Evaluates boolean query trees over the line postings of an {@link InvertedIndex}.
+ * AND operands are intersected rarest-first with galloping search, NOT operands
+ * inside an AND are applied as set differences, and a bare NOT is taken against
+ * all lines. Phrases and NEAR are resolved by merging the token positions of
+ * their words on the candidate lines.
+ */
+public class QueryExecutor {
+    private static final int[] EMPTY = new int[0];
+
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+
+    private final InvertedIndex index;
+    private final List<String> lines;
+    private final CancellationToken token;
+
+    public QueryExecutor(InvertedIndex index, List<String> lines) {
+        this(index, lines, CancellationToken.NONE);
+    }
+
+    public QueryExecutor(InvertedIndex index, List<String> lines, CancellationToken token) {
+        this.index = index;
+        this.lines = lines;
+        this.token = token;
+    }
+
+    /**
+     * Returns the sorted line numbers (1-based) matching the query. The array
+     * may be an index posting array; callers must not modify it.
+     *
+     * @throws CancellationException if the token stops evaluation
+     */
+    public int[] evaluate(QueryNode node) {
+        checkCancelled();
+        if (node instanceof QueryNode.Term term) {
+            PostingList list = index.get(term.word());
+            return list == null ? EMPTY : list.lines();
+        }
+        if (node instanceof QueryNode.Phrase phrase) {
+            return evaluatePositional(phrase.words(), (lists, at) -> matchPhrase(lists, at, -1, null));
+        }
+        if (node instanceof QueryNode.Near near) {
+            return evaluatePositional(List.of(near.left(), near.right()),
+                    (lists, at) -> matchNear(lists, at, near.distance(), -1, null));
+        }
+        if (node instanceof QueryNode.And and) {
+            return evaluateAnd(and.children());
+        }
+        if (node instanceof QueryNode.Or or) {
+            return evaluateOr(or.children());
+        }
+        QueryNode.Not not = (QueryNode.Not) node;
+        return difference(allLines(), evaluate(not.child()));
+    }
+
+    /**
+     * Collects the matched spans of every non-negated term, phrase and NEAR
+     * operand on the given lines, in (line, offset) order, for highlighting.
+     * Overlapping spans are dropped so the result can be rendered left to right.
+     */
+    public List<Occurrence> highlight(QueryNode node, int[] matchedLines) {
+        List<QueryNode> positives = new ArrayList<>();
+        collectPositive(node, false, positives);
+
+        List<int[]> spans = new ArrayList<>();
+        for (QueryNode positive : positives) {
+            List<String> words;
+            if (positive instanceof QueryNode.Term term) {
+                words = List.of(term.word());
+            } else if (positive instanceof QueryNode.Phrase phrase) {
+                words = phrase.words();
+            } else {
+                QueryNode.Near near = (QueryNode.Near) positive;
+                words = List.of(near.left(), near.right());
+            }
+
+            PostingList[] lists = postingsOf(words);
+            if (lists == null) {
+                continue;
+            }
+            int[] at = new int[lists.length];
+            for (int m = 0; m < matchedLines.length; m++) {
+                int line = matchedLines[m];
+                if (m % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                    break;
+                }
+                if (!locate(lists, at, line)) {
+                    continue;
+                }
+                if (positive instanceof QueryNode.Term) {
+                    for (int o = lists[0].occurrenceStart(at[0]); o < lists[0].occurrenceEnd(at[0]); o++) {
+                        spans.add(new int[] { line, lists[0].offsetAt(o), lists[0].lengthAt(o) });
+                    }
+                } else if (positive instanceof QueryNode.Phrase) {
+                    matchPhrase(lists, at, line, spans);
+                } else {
+                    matchNear(lists, at, ((QueryNode.Near) positive).distance(), line, spans);
+                }
+            }
+        }
+
+        spans.sort(Comparator.<int[]>comparingInt(span -> span[0]).thenComparingInt(span -> span[1])
+                .thenComparingInt(span -> -span[2]));
+        List<Occurrence> results = new ArrayList<>(spans.size());
+        int lastLine = -1;
+        int lastEnd = 0;
+        for (int[] span : spans) {
+            if (span[0] == lastLine && span[1] < lastEnd) {
+                continue;
+            }
+            String text = lines.get(span[0] - 1);
+            results.add(new Occurrence(span[0], span[1], text.substring(span[1], span[1] + span[2])));
+            lastLine = span[0];
+            lastEnd = span[1] + span[2];
+        }
+        return results;
+    }
+
+    private int[] evaluateAnd(List<QueryNode> children) {
+        List<QueryNode> positives = new ArrayList<>();
+        List<QueryNode> negatives = new ArrayList<>();
+        for (QueryNode child : children) {
+            if (child instanceof QueryNode.Not not) {
+                negatives.add(not.child());
+            } else {
+                positives.add(child);
+            }
+        }
+        positives.sort(Comparator.comparingLong(this::estimate));
+        negatives.sort(Comparator.comparingLong(this::estimate).reversed());
+
+        int[] result = positives.isEmpty() ? allLines() : null;
+        for (QueryNode child : positives) {
+            if (result != null && result.length == 0) {
+                return EMPTY;
+            }
+            if (result == null) {
+                result = evaluate(child);
+            } else if (child instanceof QueryNode.Term term) {
+                result = intersect(result, index.get(term.word()));
+            } else {
+                result = intersect(result, evaluate(child));
+            }
+        }
+        for (QueryNode child : negatives) {
+            if (result.length == 0) {
+                return EMPTY;
+            }
+            result = difference(result, evaluate(child));
+        }
+        return result;
+    }
+
+    private int[] evaluateOr(List<QueryNode> children) {
+        int[] result = EMPTY;
+        List<QueryNode> ordered = new ArrayList<>(children);
+        ordered.sort(Comparator.comparingLong(this::estimate));
+        for (QueryNode child : ordered) {
+            result = union(result, evaluate(child));
+        }
+        return result;
+    }
+
+    /**
+     * Intersects the line postings of the words rarest-first, then keeps the lines
+     * whose positions satisfy the matcher. Only the postings of the query words
+     * are touched.
+     */
+    private int[] evaluatePositional(List<String> words, PositionalMatcher matcher) {
+        PostingList[] lists = postingsOf(words);
+        if (lists == null) {
+            return EMPTY;
+        }
+        PostingList[] byRarity = lists.clone();
+        Arrays.sort(byRarity, Comparator.comparingInt(PostingList::size));
+        int[] candidates = byRarity[0].lines();
+        for (int i = 1; i < byRarity.length && candidates.length > 0; i++) {
+            candidates = intersect(candidates, byRarity[i]);
+        }
+
+        int[] result = new int[candidates.length];
+        int n = 0;
+        int[] at = new int[lists.length];
+        for (int c = 0; c < candidates.length; c++) {
+            int line = candidates[c];
+            if (c % CANCEL_CHECK_INTERVAL == 0) {
+                checkCancelled();
+            }
+            locate(lists, at, line);
+            if (matcher.matches(lists, at)) {
+                result[n++] = line;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Walks the positions of consecutive words in lockstep and reports whether
+     * word i occurs at position p + i for some start p. When {@code spans} is
+     * given, every match is added as one span instead of stopping at the first.
+     */
+    private static boolean matchPhrase(PostingList[] lists, int[] at, int line, List<int[]> spans) {
+        int n = lists.length;
+        int[] cursor = new int[n];
+        for (int i = 0; i < n; i++) {
+            cursor[i] = lists[i].occurrenceStart(at[i]);
+        }
+
+        boolean found = false;
+        for (int o = cursor[0]; o < lists[0].occurrenceEnd(at[0]); o++) {
+            int start = lists[0].positionAt(o);
+            boolean matched = true;
+            for (int i = 1; i < n && matched; i++) {
+                int end = lists[i].occurrenceEnd(at[i]);
+                while (cursor[i] < end && lists[i].positionAt(cursor[i]) < start + i) {
+                    cursor[i]++;
+                }
+                matched = cursor[i] < end && lists[i].positionAt(cursor[i]) == start + i;
+            }
+            if (matched) {
+                if (spans == null) {
+                    return true;
+                }
+                found = true;
+                int last = cursor[n - 1];
+                int offset = lists[0].offsetAt(o);
+                spans.add(new int[] { line, offset, lists[n - 1].offsetAt(last) + lists[n - 1].lengthAt(last) - offset });
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reports whether an occurrence of the left word has a distinct occurrence of
+     * the right word within {@code distance} positions. When {@code spans} is
+     * given, both occurrences of every such pair are added.
+     */
+    private static boolean matchNear(PostingList[] lists, int[] at, int distance, int line, List<int[]> spans) {
+        PostingList left = lists[0];
+        PostingList right = lists[1];
+        int rightStart = right.occurrenceStart(at[1]);
+        int rightEnd = right.occurrenceEnd(at[1]);
+
+        boolean found = false;
+        int window = rightStart;
+        for (int o = left.occurrenceStart(at[0]); o < left.occurrenceEnd(at[0]); o++) {
+            int position = left.positionAt(o);
+            while (window < rightEnd && right.positionAt(window) < position - distance) {
+                window++;
+            }
+            for (int r = window; r < rightEnd && right.positionAt(r) <= position + distance; r++) {
+                if (right.positionAt(r) == position) {
+                    continue;
+                }
+                if (spans == null) {
+                    return true;
+                }
+                found = true;
+                spans.add(new int[] { line, left.offsetAt(o), left.lengthAt(o) });
+                spans.add(new int[] { line, right.offsetAt(r), right.lengthAt(r) });
+            }
+        }
+        return found;
+    }
+
+    private void checkCancelled() {
+        if (token.shouldStop()) {
+            throw new CancellationException("Query stopped");
+        }
+    }
+
+    /** Returns the postings of every word, or {@code null} if any word is absent. */
+    private PostingList[] postingsOf(List<String> words) {
+        PostingList[] lists = new PostingList[words.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = index.get(words.get(i));
+            if (lists[i] == null) {
+                return null;
+            }
+        }
+        return lists;
+    }
+
+    /** Fills {@code at} with each list's posting index for the line; false if any lacks it. */
+    private static boolean locate(PostingList[] lists, int[] at, int line) {
+        for (int i = 0; i < lists.length; i++) {
+            at[i] = lists[i].advance(0, line);
+            if (at[i] == lists[i].size() || lists[i].lineAt(at[i]) != line) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Estimated number of matching lines, used to order operands rarest first. */
+    private long estimate(QueryNode node) {
+        if (node instanceof QueryNode.Term term) {
+            return index.getDocumentFrequency(term.word());
+        }
+        if (node instanceof QueryNode.Phrase phrase) {
+            long min = Long.MAX_VALUE;
+            for (String word : phrase.words()) {
+                min = Math.min(min, index.getDocumentFrequency(word));
+            }
+            return min;
+        }
+        if (node instanceof QueryNode.Near near) {
+            return Math.min(index.getDocumentFrequency(near.left()), index.getDocumentFrequency(near.right()));
+        }
+        if (node instanceof QueryNode.And and) {
+            long min = lines.size();
+            for (QueryNode child : and.children()) {
+                if (!(child instanceof QueryNode.Not)) {
+                    min = Math.min(min, estimate(child));
+                }
+            }
+            return min;
+        }
+        if (node instanceof QueryNode.Or or) {
+            long sum = 0;
+            for (QueryNode child : or.children()) {
+                sum += estimate(child);
+            }
+            return Math.min(sum, lines.size());
+        }
+        return lines.size() - estimate(((QueryNode.Not) node).child());
+    }
+
+    private static void collectPositive(QueryNode node, boolean negated, List<QueryNode> positives) {
+        if (node instanceof QueryNode.And and) {
+            for (QueryNode child : and.children()) {
+                collectPositive(child, negated, positives);
+            }
+        } else if (node instanceof QueryNode.Or or) {
+            for (QueryNode child : or.children()) {
+                collectPositive(child, negated, positives);
+            }
+        } else if (node instanceof QueryNode.Not not) {
+            collectPositive(not.child(), !negated, positives);
+        } else if (!negated && !positives.contains(node)) {
+            positives.add(node);
+        }
+    }
+
+    private int[] allLines() {
+        int[] all = new int[lines.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i + 1;
+        }
+        return all;
+    }
+
+    private static int[] intersect(int[] small, PostingList list) {
+        if (list == null) {
+            return EMPTY;
+        }
+        int[] result = new int[Math.min(small.length, list.size())];
+        int n = 0;
+        int p = 0;
+        for (int line : small) {
+            p = list.advance(p, line);
+            if (p == list.size()) {
+                break;
+            }
+            if (list.lineAt(p) == line) {
+                result[n++] = line;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] t = a;
+            a = b;
+            b = t;
+        }
+        int[] result = new int[a.length];
+        int n = 0;
+        int p = 0;
+        for (int line : a) {
+            p = PostingList.gallop(b, b.length, p, line);
+            if (p == b.length) {
+                break;
+            }
+            if (b[p] == line) {
+                result[n++] = line;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] difference(int[] a, int[] b) {
+        int[] result = new int[a.length];
+        int n = 0;
+        int p = 0;
+        for (int line : a) {
+            p = PostingList.gallop(b, b.length, p, line);
+            if (p == b.length || b[p] != line) {
+                result[n++] = line;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[n++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[n++] = b[j++];
+            } else {
+                result[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[n++] = a[i++];
+        }
+        while (j < b.length) {
+            result[n++] = b[j++];
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    @FunctionalInterface
+    private interface PositionalMatcher {
+        boolean matches(PostingList[] lists, int[] at);
+    }
+}
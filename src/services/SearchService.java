@@ -1,20 +1,70 @@
 package src.services;
 
 import src.processors.TextProcessor;
-import src.processors.BoyerMooreHorspool;
+import src.processors.ChannelWriter;
+import src.processors.IndexSnapshot;
+import src.processors.InvertedIndex;
+import src.processors.KeywordMatcher;
+import src.processors.MultiReplaceEngine;
+import src.processors.OccurrenceEncoder;
+import src.processors.PieceTable;
+import src.processors.PrefixSearchEngine;
+import src.processors.QueryNode;
+import src.processors.QueryParser;
+import src.processors.ReplaceEngine;
 import src.models.Occurrence;
+import src.models.OccurrenceList;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 public class SearchService {
-    private TextProcessor textProcessor;
-    private String currentFilePath;
+    private static final long DEFAULT_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int DEFAULT_PARALLEL_THRESHOLD = 20_000;
+    private static final int PARTITIONS_PER_THREAD = 4;
+    private static final int CANCEL_CHECK_INTERVAL = 256;
+    private static final int REVISION_BITS = 32;
+    private static final String UNINDEXED_EDITS =
+            "the word index covers the file as loaded; save the edits and load the saved file to query them";
+
+    private final TextProcessor textProcessor;
+    private final QueryCache queryCache;
+    private final Object editLock = new Object();
+    private volatile PieceTable document = new PieceTable(Collections.emptyList());
+    private volatile int parallelism = Runtime.getRuntime().availableProcessors();
+    private volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+    private SearchPool searchPool;
     
     public SearchService() {
         this.textProcessor = new TextProcessor();
+        this.queryCache = new QueryCache(DEFAULT_CACHE_BYTES);
     }
 
+    /**
+     * Loads a file into a new snapshot and swaps it in atomically. Searches running
+     * on other threads finish against the snapshot they started with; the old one
+     * is reclaimed once they are done.
+     */
     public SearchResult loadFile(String filePath) throws IOException {
+        return loadFile(filePath, TextProcessor.LoadListener.NONE, CancellationToken.NONE);
+    }
+
+    /**
+     * Loads and indexes a file, reporting progress to {@code listener} as it goes.
+     * The previous file stays loaded and searchable until the new one is ready. A
+     * load stopped by the token publishes nothing and returns an unsuccessful,
+     * truncated result, leaving the previous file in place.
+     */
+    public SearchResult loadFile(String filePath, TextProcessor.LoadListener listener,
+                                 CancellationToken token) throws IOException {
         File file = new File(filePath);
         
         if (!file.exists()) {
@@ -25,58 +75,80 @@ public class SearchService {
         }
         
         long startTime = System.nanoTime();
-        textProcessor.loadFile(filePath);
+        IndexSnapshot snapshot;
+        try {
+            snapshot = textProcessor.loadFile(filePath, (bytesRead, totalBytes, lines) -> {
+                if (token.shouldStop()) {
+                    throw new CancellationException();
+                }
+                listener.progress(bytesRead, totalBytes, lines);
+            });
+        } catch (CancellationException e) {
+            long duration = (System.nanoTime() - startTime) / 1_000_000;
+            SearchResult result = new SearchResult(false, "Load cancelled; previous file is still loaded",
+                    0, 0, duration, null);
+            result.truncated = true;
+            return result;
+        }
+        synchronized (editLock) {
+            editableDocument();
+        }
         long duration = (System.nanoTime() - startTime) / 1_000_000;
         
-        this.currentFilePath = filePath;
-        
         return new SearchResult(
             true,
             "File loaded successfully",
-            textProcessor.getLines().size(),
-            getTotalCharacters(),
+            snapshot.getLines().size(),
+            snapshot.getCharacterCount(),
             duration,
             null
         );
     }
 
     public SearchResult search(String keyword, SearchMode mode, boolean caseInsensitive) {
+        return search(keyword, mode, caseInsensitive, CancellationToken.NONE);
+    }
+
+    /**
+     * Searches until done or until the token stops the scan. A stopped search
+     * returns the matches found so far with {@link SearchResult#isTruncated()} set,
+     * and is not cached.
+     */
+    public SearchResult search(String keyword, SearchMode mode, boolean caseInsensitive,
+                               CancellationToken token) {
         if (keyword == null || keyword.trim().isEmpty()) {
             return new SearchResult(false, "Keyword cannot be empty", 0, 0, 0, null);
         }
         
         long startTime = System.nanoTime();
-        List<Occurrence> results = new ArrayList<>();
-        
+        IndexSnapshot snapshot = textProcessor.getSnapshot();
+        PieceTable.Revision revision = currentRevision(snapshot);
+        long generation = cacheGeneration(snapshot, revision);
+        List<String> lines = revision.getLines();
+        List<Occurrence> cached = queryCache.get(keyword, mode, caseInsensitive, generation);
+        if (cached != null) {
+            long duration = (System.nanoTime() - startTime) / 1000;
+            return new SearchResult(true, "Search completed (cached)", cached.size(), 0, duration, cached);
+        }
+
         try {
-            switch (mode) {
-                case PREFIX:
-                    results = searchPrefix(keyword, caseInsensitive);
-                    break;
-                case SUBSTRING:
-                    results = searchSubstring(keyword, caseInsensitive);
-                    break;
-                case WHOLE_WORD:
-                    results = searchWholeWord(keyword, caseInsensitive);
-                    break;
+            OccurrenceList results = scanLines(lines, createScanner(keyword, mode, caseInsensitive), token).seal();
+            boolean truncated = token.wasStopped();
+            if (!truncated) {
+                queryCache.put(keyword, mode, caseInsensitive, generation, results);
             }
-
-            results.sort((occ1, occ2) -> {
-                if (occ1.getLineNumber() != occ2.getLineNumber()) {
-                    return Integer.compare(occ1.getLineNumber(), occ2.getLineNumber());
-                }
-                return Integer.compare(occ1.getStartIndex(), occ2.getStartIndex());
-            });
             
             long duration = (System.nanoTime() - startTime) / 1000;
-            return new SearchResult(
+            SearchResult result = new SearchResult(
                 true,
-                "Search completed",
+                truncated ? "Search stopped early; results are partial" : "Search completed",
                 results.size(),
                 0,
                 duration,
                 results
             );
+            result.truncated = truncated;
+            return result;
         } catch (Exception e) {
             long duration = (System.nanoTime() - startTime) / 1000;
             return new SearchResult(
@@ -90,54 +162,564 @@ public class SearchService {
         }
     }
 
-    public SearchResult replace(String keyword, String replacement, String outputPath, 
-                                boolean caseInsensitive) {
-        if (replacement == null) {
-            return new SearchResult(false, "Replacement target cannot be null", 0, 0, 0, null);
+    /**
+     * Searches like {@link #search} but hands matches over while the scan runs:
+     * after every {@code batchLines} lines, the matches in those lines go to
+     * {@code batches} as a read-only list, in line order. The scan runs on the
+     * calling thread. The result holds all matches; a complete search is cached,
+     * and a cached one is delivered as a single batch. A stopped search has
+     * delivered the matches found so far.
+     */
+    public SearchResult searchIncremental(String keyword, SearchMode mode, boolean caseInsensitive,
+                                          int batchLines, Consumer<List<Occurrence>> batches,
+                                          CancellationToken token) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return new SearchResult(false, "Keyword cannot be empty", 0, 0, 0, null);
         }
-        
+        if (batchLines < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1 line");
+        }
+
         long startTime = System.nanoTime();
-        
+        IndexSnapshot snapshot = textProcessor.getSnapshot();
+        PieceTable.Revision revision = currentRevision(snapshot);
+        long generation = cacheGeneration(snapshot, revision);
+        List<String> lines = revision.getLines();
+        List<Occurrence> cached = queryCache.get(keyword, mode, caseInsensitive, generation);
+        if (cached != null) {
+            if (!cached.isEmpty()) {
+                batches.accept(cached);
+            }
+            long duration = (System.nanoTime() - startTime) / 1000;
+            return new SearchResult(true, "Search completed (cached)", cached.size(), 0, duration, cached);
+        }
+
         try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(outputPath));
-            int replacementCount = 0;
-            
-            for (String line : textProcessor.getLines()) {
-                String processedLine;
-                
-                if (caseInsensitive) {
-                    processedLine = line.replaceAll("(?i)" + escapeRegex(keyword), replacement);
-                } else {
-                    processedLine = line.replace(keyword, replacement);
+            LineScanner scanner = createScanner(keyword, mode, caseInsensitive);
+            OccurrenceList results = new OccurrenceList(lines);
+            for (int from = 0; from < lines.size() && !token.shouldStop(); from += batchLines) {
+                OccurrenceList batch = new OccurrenceList(lines);
+                scanRange(lines, from, Math.min(from + batchLines, lines.size()), scanner, batch::add, token);
+                if (!batch.isEmpty()) {
+                    results.append(batch);
+                    batches.accept(batch.seal());
+                }
+            }
+            results.seal();
+            boolean truncated = token.wasStopped();
+            if (!truncated) {
+                queryCache.put(keyword, mode, caseInsensitive, generation, results);
+            }
+
+            long duration = (System.nanoTime() - startTime) / 1000;
+            SearchResult result = new SearchResult(true,
+                    truncated ? "Search stopped early; results are partial" : "Search completed",
+                    results.size(), 0, duration, results);
+            result.truncated = truncated;
+            return result;
+        } catch (RuntimeException e) {
+            long duration = (System.nanoTime() - startTime) / 1000;
+            return new SearchResult(false, "Search error: " + e.getMessage(), 0, 0, duration, null);
+        }
+    }
+
+    /**
+     * Streams the matches of a search to an encoder as they are found, in line
+     * order, without collecting them. Matches are those of {@link #search}; the
+     * count is the number of records written. The scan runs on the calling thread
+     * so records come out in order. The encoder is flushed but not closed; a
+     * stopped export has written the matches found so far.
+     */
+    public SearchResult searchTo(String keyword, SearchMode mode, boolean caseInsensitive,
+                                 OccurrenceEncoder encoder, CancellationToken token) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return new SearchResult(false, "Keyword cannot be empty", 0, 0, 0, null);
+        }
+
+        long startTime = System.nanoTime();
+        LineScanner scanner = createScanner(keyword, mode, caseInsensitive);
+        List<String> lines = getFileLines();
+        long written = encoder.getRecordCount();
+        try {
+            for (int i = 0; i < lines.size(); i++) {
+                if (i % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                    break;
+                }
+                String line = lines.get(i);
+                scanner.scan(i, line, (lineNumber, startIndex, length) -> {
+                    try {
+                        encoder.write(lineNumber, startIndex, line, length);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            encoder.flush();
+        } catch (IOException | UncheckedIOException e) {
+            long duration = (System.nanoTime() - startTime) / 1000;
+            String message = e instanceof UncheckedIOException ? e.getCause().getMessage() : e.getMessage();
+            return new SearchResult(false, "Export error: " + message, 0, 0, duration, null);
+        }
+
+        long duration = (System.nanoTime() - startTime) / 1000;
+        long records = encoder.getRecordCount() - written;
+        SearchResult result = new SearchResult(true,
+                token.wasStopped() ? "Export stopped early; output is partial" : "Export completed",
+                (int) Math.min(records, Integer.MAX_VALUE), encoder.getBytesWritten(), duration, null);
+        result.truncated = token.wasStopped();
+        return result;
+    }
+
+    /**
+     * Counts matches without materializing occurrences. Match semantics are the same
+     * as {@link #search}, but lines are never copied or lowercased.
+     */
+    public SearchResult count(String keyword, SearchMode mode, boolean caseInsensitive) {
+        return count(keyword, mode, caseInsensitive, CancellationToken.NONE);
+    }
+
+    /** Counts until done or stopped; a stopped count is a lower bound and marked truncated. */
+    public SearchResult count(String keyword, SearchMode mode, boolean caseInsensitive,
+                              CancellationToken token) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return new SearchResult(false, "Keyword cannot be empty", 0, 0, 0, null);
+        }
+
+        long startTime = System.nanoTime();
+        try {
+            long total = countLines(getFileLines(), createMatcher(keyword, mode, caseInsensitive),
+                    token);
+            long duration = (System.nanoTime() - startTime) / 1000;
+            SearchResult result = new SearchResult(true,
+                    token.wasStopped() ? "Count stopped early; total is partial" : "Count completed",
+                    (int) Math.min(total, Integer.MAX_VALUE), 0, duration, null);
+            result.truncated = token.wasStopped();
+            return result;
+        } catch (Exception e) {
+            long duration = (System.nanoTime() - startTime) / 1000;
+            return new SearchResult(false, "Count error: " + e.getMessage(), 0, 0, duration, null);
+        }
+    }
+
+    /**
+     * Reports whether the keyword occurs at all, stopping at the first match.
+     * On success the count is 1 if a match exists and 0 otherwise.
+     */
+    public SearchResult exists(String keyword, SearchMode mode, boolean caseInsensitive) {
+        return exists(keyword, mode, caseInsensitive, CancellationToken.NONE);
+    }
+
+    /** Existence check that gives up, marked truncated, when the token stops it. */
+    public SearchResult exists(String keyword, SearchMode mode, boolean caseInsensitive,
+                               CancellationToken token) {
+        if (keyword == null || keyword.trim().isEmpty()) {
+            return new SearchResult(false, "Keyword cannot be empty", 0, 0, 0, null);
+        }
+
+        long startTime = System.nanoTime();
+        KeywordMatcher matcher = createMatcher(keyword, mode, caseInsensitive);
+        List<String> lines = getFileLines();
+        for (int i = 0; i < lines.size(); i++) {
+            if (i % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                long duration = (System.nanoTime() - startTime) / 1000;
+                SearchResult result = new SearchResult(true, "Check stopped early; no match found so far",
+                        0, 0, duration, null);
+                result.truncated = true;
+                return result;
+            }
+            if (matcher.find(lines.get(i), 0) != -1) {
+                long duration = (System.nanoTime() - startTime) / 1000;
+                return new SearchResult(true, "Match found", 1, 0, duration, null);
+            }
+        }
+        long duration = (System.nanoTime() - startTime) / 1000;
+        return new SearchResult(true, "No match found", 0, 0, duration, null);
+    }
+
+    /**
+     * Runs many searches in one pass over the file and returns one result per
+     * query, in query order. Keywords are grouped by case sensitivity into one
+     * automaton per group, so the cost of a pass barely grows with the number of
+     * queries. Each query gets exactly the occurrences {@link #search} would
+     * return; its time is that of the shared pass.
+     */
+    public List<SearchResult> searchBatch(List<BatchQuery> queries) {
+        return searchBatch(queries, CancellationToken.NONE);
+    }
+
+    /** Batch search that stops early, marking every scanned query truncated, when the token stops it. */
+    public List<SearchResult> searchBatch(List<BatchQuery> queries, CancellationToken token) {
+        long startTime = System.nanoTime();
+        IndexSnapshot snapshot = textProcessor.getSnapshot();
+        PieceTable.Revision revision = currentRevision(snapshot);
+        long generation = cacheGeneration(snapshot, revision);
+        SearchResult[] results = new SearchResult[queries.size()];
+
+        List<Integer> pending = new ArrayList<>();
+        for (int q = 0; q < queries.size(); q++) {
+            BatchQuery query = queries.get(q);
+            if (query.keyword() == null || query.keyword().trim().isEmpty()) {
+                results[q] = new SearchResult(false, "Keyword cannot be empty", 0, 0, 0, null);
+                continue;
+            }
+            List<Occurrence> cached = queryCache.get(query.keyword(), query.mode(), query.caseInsensitive(),
+                    generation);
+            if (cached != null) {
+                results[q] = new SearchResult(true, "Search completed (cached)", cached.size(), 0, 0, cached);
+            } else {
+                pending.add(q);
+            }
+        }
+        if (pending.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        try {
+            BatchMatcher sensitive = new BatchMatcher(queries, pending, false);
+            BatchMatcher insensitive = new BatchMatcher(queries, pending, true);
+            List<String> lines = revision.getLines();
+
+            List<OccurrenceList[]> parts = runPartitioned(lines.size(), (from, to) -> {
+                OccurrenceList[] partial = new OccurrenceList[queries.size()];
+                for (int q : pending) {
+                    partial[q] = new OccurrenceList(lines);
+                }
+                BatchMatcher.LineScan sensitiveScan = sensitive.newScan(partial);
+                BatchMatcher.LineScan insensitiveScan = insensitive.newScan(partial);
+                for (int i = from; i < to; i++) {
+                    if ((i - from) % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                        break;
+                    }
+                    String line = lines.get(i);
+                    sensitiveScan.scan(i, line);
+                    insensitiveScan.scan(i, line);
                 }
+                return partial;
+            });
 
-                int count = 0;
-                String temp = line;
-                if (caseInsensitive) {
-                    temp = line.toLowerCase();
-                    keyword = keyword.toLowerCase();
+            boolean truncated = token.wasStopped();
+            long duration = (System.nanoTime() - startTime) / 1000;
+            for (int q : pending) {
+                List<OccurrenceList> perQuery = new ArrayList<>(parts.size());
+                for (OccurrenceList[] part : parts) {
+                    perQuery.add(part[q]);
                 }
-                int index = 0;
-                while ((index = temp.indexOf(keyword, index)) != -1) {
-                    count++;
-                    index += keyword.length();
+                OccurrenceList occurrences = concat(lines, perQuery).seal();
+
+                BatchQuery query = queries.get(q);
+                if (!truncated) {
+                    queryCache.put(query.keyword(), query.mode(), query.caseInsensitive(), generation, occurrences);
                 }
-                replacementCount += count;
-                
-                writer.write(processedLine);
+                results[q] = new SearchResult(true,
+                        truncated ? "Search stopped early; results are partial" : "Search completed",
+                        occurrences.size(), 0, duration, occurrences);
+                results[q].truncated = truncated;
+            }
+        } catch (Exception e) {
+            long duration = (System.nanoTime() - startTime) / 1000;
+            for (int q : pending) {
+                results[q] = new SearchResult(false, "Search error: " + e.getMessage(), 0, 0, duration, null);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    private KeywordMatcher createMatcher(String keyword, SearchMode mode, boolean caseInsensitive) {
+        return switch (mode) {
+            case PREFIX -> new KeywordMatcher(keyword, caseInsensitive, true, false);
+            case SUBSTRING -> new KeywordMatcher(keyword, caseInsensitive, false, false);
+            case WHOLE_WORD -> new KeywordMatcher(keyword, caseInsensitive, true, true);
+        };
+    }
+
+    /**
+     * Evaluates a boolean query (AND / OR / NOT / "phrase") over the word index.
+     * The count is the number of matching lines and the results hold the
+     * occurrences of the non-negated terms on those lines. Matching is always
+     * case-insensitive, like the word index.
+     */
+    public SearchResult query(String queryText) {
+        return query(queryText, CancellationToken.NONE);
+    }
+
+    /**
+     * Evaluates a query until done or stopped. If the token stops evaluation no
+     * lines are returned; if it stops highlighting the lines are complete but
+     * the highlights are partial. Either way the result is marked truncated.
+     */
+    public SearchResult query(String queryText, CancellationToken token) {
+        long startTime = System.nanoTime();
+        try {
+            QueryNode node = QueryParser.parse(queryText);
+            IndexSnapshot snapshot = textProcessor.getSnapshot();
+            if (currentRevision(snapshot).getId() != 0) {
+                throw new IllegalArgumentException(UNINDEXED_EDITS);
+            }
+            QueryExecutor executor = new QueryExecutor(snapshot.getWordIndex(), snapshot.getLines(), token);
+            // evaluate may hand back an index posting array, which callers must not own
+            int[] lines = executor.evaluate(node).clone();
+            List<Occurrence> results = executor.highlight(node, lines);
+
+            long duration = (System.nanoTime() - startTime) / 1000;
+            SearchResult result = new SearchResult(true, "Query matched " + lines.length + " lines",
+                    lines.length, 0, duration, results, lines);
+            result.truncated = token.wasStopped();
+            return result;
+        } catch (CancellationException e) {
+            long duration = (System.nanoTime() - startTime) / 1000;
+            SearchResult result = new SearchResult(true, "Query stopped before completion", 0, 0, duration,
+                    Collections.emptyList(), new int[0]);
+            result.truncated = true;
+            return result;
+        } catch (IllegalArgumentException e) {
+            long duration = (System.nanoTime() - startTime) / 1000;
+            return new SearchResult(false, "Query error: " + e.getMessage(), 0, 0, duration, null);
+        }
+    }
+
+    /**
+     * Ranks lines by BM25 relevance to the query words and returns the top K.
+     * Line numbers are in rank order with their scores; the results hold the
+     * query word occurrences on those lines for highlighting.
+     */
+    public SearchResult rank(String queryText, int topK) {
+        return rank(queryText, topK, CancellationToken.NONE);
+    }
+
+    /** Ranks until done or stopped; a stopped ranking holds the best lines seen so far. */
+    public SearchResult rank(String queryText, int topK, CancellationToken token) {
+        long startTime = System.nanoTime();
+        List<String> words = new ArrayList<>();
+        if (queryText != null) {
+            for (String part : queryText.trim().split("\\s+")) {
+                String word = part.replaceAll("[^a-zA-Z0-9]", "").toLowerCase();
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+        if (words.isEmpty()) {
+            return new SearchResult(false, "Query must contain at least one word", 0, 0, 0, null);
+        }
+        if (topK < 1) {
+            return new SearchResult(false, "Result limit must be at least 1", 0, 0, 0, null);
+        }
+
+        IndexSnapshot snapshot = textProcessor.getSnapshot();
+        if (currentRevision(snapshot).getId() != 0) {
+            return new SearchResult(false, "Rank error: " + UNINDEXED_EDITS, 0, 0, 0, null);
+        }
+        InvertedIndex index = snapshot.getWordIndex();
+        Bm25Ranker.Ranking ranking = new Bm25Ranker(index).rank(words, topK, token);
+
+        List<QueryNode> terms = new ArrayList<>();
+        for (String word : words) {
+            terms.add(new QueryNode.Term(word));
+        }
+        int[] sortedLines = ranking.lines().clone();
+        Arrays.sort(sortedLines);
+        List<Occurrence> highlights = new QueryExecutor(index, snapshot.getLines())
+                .highlight(new QueryNode.Or(terms), sortedLines);
+
+        long duration = (System.nanoTime() - startTime) / 1000;
+        SearchResult result = new SearchResult(true,
+                String.format("Scored %d of %d postings", ranking.scoredPostings(), ranking.totalPostings()),
+                ranking.lines().length, 0, duration, highlights, ranking.lines());
+        result.scores = ranking.scores();
+        result.truncated = token.wasStopped();
+        return result;
+    }
+
+    public SearchResult replace(String keyword, String replacement, String outputPath, 
+                                boolean caseInsensitive) {
+        return replace(keyword, SearchMode.SUBSTRING, replacement, outputPath, caseInsensitive,
+                CancellationToken.NONE);
+    }
+
+    public SearchResult replace(String keyword, String replacement, String outputPath,
+                                boolean caseInsensitive, CancellationToken token) {
+        return replace(keyword, SearchMode.SUBSTRING, replacement, outputPath, caseInsensitive, token);
+    }
+
+    /**
+     * Writes the loaded file to {@code outputPath} with every match replaced. Matches
+     * and the count are exactly those of {@link #search} in the same mode; in prefix
+     * mode the whole matched word is replaced. A stopped replace leaves a partial
+     * output file.
+     */
+    public SearchResult replace(String keyword, SearchMode mode, String replacement, String outputPath,
+                                boolean caseInsensitive, CancellationToken token) {
+        Iterator<String> lines = getFileLines().iterator();
+        return runReplace(() -> lines.hasNext() ? lines.next() : null,
+                keyword, mode, replacement, outputPath, caseInsensitive, false, false, token);
+    }
+
+    /**
+     * Parallel replace of the loaded file for large rewrites. Line chunks are
+     * rewritten on the search pool and written in order to a temporary file that
+     * is renamed over {@code outputPath} once complete; with {@code sync} the data
+     * is forced to disk before the rename and the directory after it. A stopped
+     * replace leaves {@code outputPath} untouched.
+     */
+    public SearchResult replaceParallel(String keyword, SearchMode mode, String replacement, String outputPath,
+                                        boolean caseInsensitive, boolean sync, CancellationToken token) {
+        Iterator<String> lines = getFileLines().iterator();
+        return runReplace(() -> lines.hasNext() ? lines.next() : null,
+                keyword, mode, replacement, outputPath, caseInsensitive, true, sync, token);
+    }
+
+    /**
+     * Like {@link #replace(String, SearchMode, String, String, boolean, CancellationToken)},
+     * but streams the input file line by line instead of using the loaded file, so
+     * its size is not limited by memory. Gzip input is accepted.
+     */
+    public SearchResult replaceFile(String inputPath, String keyword, SearchMode mode, String replacement,
+                                    String outputPath, boolean caseInsensitive, CancellationToken token) {
+        try {
+            requireSeparateOutput(inputPath, outputPath);
+        } catch (IOException e) {
+            return new SearchResult(false, "Replace error: " + e.getMessage(), 0, 0, 0, null);
+        }
+        try (BufferedReader reader = TextProcessor.openReader(inputPath)) {
+            return runReplace(reader::readLine, keyword, mode, replacement, outputPath, caseInsensitive,
+                    false, false, token);
+        } catch (IOException e) {
+            return new SearchResult(false, "Replace error: " + e.getMessage(), 0, 0, 0, null);
+        }
+    }
+
+    /** Streaming input combined with the parallel, atomically published output of {@link #replaceParallel}. */
+    public SearchResult replaceFileParallel(String inputPath, String keyword, SearchMode mode, String replacement,
+                                            String outputPath, boolean caseInsensitive, boolean sync,
+                                            CancellationToken token) {
+        try (BufferedReader reader = TextProcessor.openReader(inputPath)) {
+            return runReplace(reader::readLine, keyword, mode, replacement, outputPath, caseInsensitive,
+                    true, sync, token);
+        } catch (IOException e) {
+            return new SearchResult(false, "Replace error: " + e.getMessage(), 0, 0, 0, null);
+        }
+    }
+
+    /**
+     * Applies every substitution of a mapping file (see
+     * {@link MultiReplaceEngine#readMapping}) to the loaded file in one pass and
+     * writes the result to {@code outputPath}. Overlapping keys resolve
+     * leftmost-longest. The count is the total number of replacements and
+     * {@link SearchResult#getReplacementCounts()} breaks it down per key.
+     */
+    public SearchResult replaceMap(String mappingPath, String outputPath, boolean caseInsensitive,
+                                   CancellationToken token) {
+        Iterator<String> lines = getFileLines().iterator();
+        return runReplaceMap(() -> lines.hasNext() ? lines.next() : null, mappingPath, outputPath,
+                caseInsensitive, token);
+    }
+
+    /** Like {@link #replaceMap}, but streams the input file instead of using the loaded file. */
+    public SearchResult replaceMapFile(String inputPath, String mappingPath, String outputPath,
+                                       boolean caseInsensitive, CancellationToken token) {
+        try {
+            requireSeparateOutput(inputPath, outputPath);
+        } catch (IOException e) {
+            return new SearchResult(false, "Replace error: " + e.getMessage(), 0, 0, 0, null);
+        }
+        try (BufferedReader reader = TextProcessor.openReader(inputPath)) {
+            return runReplaceMap(reader::readLine, mappingPath, outputPath, caseInsensitive, token);
+        } catch (IOException e) {
+            return new SearchResult(false, "Replace error: " + e.getMessage(), 0, 0, 0, null);
+        }
+    }
+
+    /**
+     * Streaming replaces truncate the output while the input is still being
+     * read, so writing over the input would destroy it. The parallel variants
+     * publish through a rename and are not affected.
+     */
+    private static void requireSeparateOutput(String inputPath, String outputPath) throws IOException {
+        Path input = Paths.get(inputPath);
+        Path output = Paths.get(outputPath);
+        if (Files.exists(output) && Files.isSameFile(input, output)) {
+            throw new IOException("Output file is the input file: " + outputPath
+                    + " (write elsewhere or use the parallel replace)");
+        }
+    }
+
+    private SearchResult runReplaceMap(LineSource source, String mappingPath, String outputPath,
+                                       boolean caseInsensitive, CancellationToken token) {
+        long startTime = System.nanoTime();
+        MultiReplaceEngine engine;
+        try {
+            engine = new MultiReplaceEngine(MultiReplaceEngine.readMapping(mappingPath), caseInsensitive);
+        } catch (IOException | IllegalArgumentException e) {
+            long duration = (System.nanoTime() - startTime) / 1000;
+            return new SearchResult(false, "Mapping error: " + e.getMessage(), 0, 0, duration, null);
+        }
+
+        long replacementCount = 0;
+        int lineIndex = 0;
+        try (ChannelWriter writer = new ChannelWriter(Paths.get(outputPath))) {
+            String line;
+            while ((line = source.next()) != null) {
+                if (lineIndex++ % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                    break;
+                }
+                replacementCount += engine.replaceLine(line, writer);
                 writer.newLine();
             }
-            writer.close();
-            
+        } catch (IOException e) {
             long duration = (System.nanoTime() - startTime) / 1000;
-            return new SearchResult(
-                true,
-                "Replacement completed. File saved to: " + outputPath,
-                replacementCount,
-                0,
-                duration,
-                null
-            );
+            return new SearchResult(false, "Replace error: " + e.getMessage(), 0, 0, duration, null);
+        }
+
+        long duration = (System.nanoTime() - startTime) / 1000;
+        SearchResult result = new SearchResult(true,
+                (token.wasStopped() ? "Replacement stopped early. Partial file saved to: "
+                        : "Replacement completed. File saved to: ") + outputPath,
+                (int) Math.min(replacementCount, Integer.MAX_VALUE), 0, duration, null);
+        result.replacementCounts = engine.getCounts();
+        result.truncated = token.wasStopped();
+        return result;
+    }
+
+    private SearchResult runReplace(LineSource source, String keyword, SearchMode mode, String replacement,
+                                    String outputPath, boolean caseInsensitive, boolean parallel, boolean sync,
+                                    CancellationToken token) {
+        if (keyword == null || keyword.isEmpty()) {
+            return new SearchResult(false, "Keyword cannot be empty", 0, 0, 0, null);
+        }
+        if (replacement == null) {
+            return new SearchResult(false, "Replacement target cannot be null", 0, 0, 0, null);
+        }
+
+        long startTime = System.nanoTime();
+        ReplaceEngine engine = new ReplaceEngine(createMatcher(keyword, mode, caseInsensitive),
+                mode == SearchMode.PREFIX, replacement);
+        long replacementCount = 0;
+        int lineIndex = 0;
+
+        try {
+            if (parallel) {
+                SearchPool pool = acquireSearchPool();
+                try {
+                    replacementCount = new ParallelReplacer(pool.executor, parallelism)
+                            .run(source, engine, Paths.get(outputPath), sync, token);
+                } finally {
+                    releaseSearchPool(pool);
+                }
+            } else {
+                try (ChannelWriter writer = new ChannelWriter(Paths.get(outputPath))) {
+                    String line;
+                    while ((line = source.next()) != null) {
+                        if (lineIndex++ % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                            break;
+                        }
+                        replacementCount += engine.replaceLine(line, writer);
+                        writer.newLine();
+                    }
+                    if (sync) {
+                        writer.flush(true);
+                    }
+                }
+            }
         } catch (IOException e) {
             long duration = (System.nanoTime() - startTime) / 1000;
             return new SearchResult(
@@ -149,32 +731,266 @@ public class SearchService {
                 null
             );
         }
+
+        long duration = (System.nanoTime() - startTime) / 1000;
+        SearchResult result = new SearchResult(
+            true,
+            (!token.wasStopped() ? "Replacement completed. File saved to: "
+                    : parallel ? "Replacement stopped early. File left unchanged: "
+                    : "Replacement stopped early. Partial file saved to: ") + outputPath,
+            (int) Math.min(replacementCount, Integer.MAX_VALUE),
+            0,
+            duration,
+            null
+        );
+        result.truncated = token.wasStopped();
+        return result;
+    }
+
+    /**
+     * Replaces every match in the loaded document and records the changed lines
+     * as one undoable edit. Only the changed lines are stored; unchanged lines
+     * stay shared with the loaded file. Matches and the count are those of
+     * {@link #search} on the document as currently edited. A stopped replace
+     * records nothing.
+     */
+    public SearchResult applyReplace(String keyword, SearchMode mode, String replacement,
+                                     boolean caseInsensitive, CancellationToken token) {
+        if (keyword == null || keyword.isEmpty()) {
+            return new SearchResult(false, "Keyword cannot be empty", 0, 0, 0, null);
+        }
+        if (replacement == null) {
+            return new SearchResult(false, "Replacement target cannot be null", 0, 0, 0, null);
+        }
+
+        long startTime = System.nanoTime();
+        ReplaceEngine engine = new ReplaceEngine(createMatcher(keyword, mode, caseInsensitive),
+                mode == SearchMode.PREFIX, replacement);
+        synchronized (editLock) {
+            PieceTable document = editableDocument();
+            List<String> lines = document.getCurrent().getLines();
+            int[] changed = new int[16];
+            List<String> texts = new ArrayList<>();
+            StringBuilder out = new StringBuilder();
+            long replacementCount = 0;
+            try {
+                for (int i = 0; i < lines.size(); i++) {
+                    if (i % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                        long duration = (System.nanoTime() - startTime) / 1000;
+                        SearchResult result = new SearchResult(true, "Replace stopped early; document unchanged",
+                                0, 0, duration, null);
+                        result.truncated = true;
+                        return result;
+                    }
+                    out.setLength(0);
+                    int count = engine.replaceLine(lines.get(i), out);
+                    if (count > 0) {
+                        if (texts.size() == changed.length) {
+                            changed = Arrays.copyOf(changed, changed.length * 2);
+                        }
+                        changed[texts.size()] = i;
+                        texts.add(out.toString());
+                        replacementCount += count;
+                    }
+                }
+            } catch (IOException e) {
+                long duration = (System.nanoTime() - startTime) / 1000;
+                return new SearchResult(false, "Replace error: " + e.getMessage(), 0, 0, duration, null);
+            }
+
+            document.replaceLines(Arrays.copyOf(changed, texts.size()), texts);
+            long duration = (System.nanoTime() - startTime) / 1000;
+            return new SearchResult(true,
+                    texts.isEmpty() ? "No occurrences to replace"
+                            : "Replaced in " + texts.size() + " lines (revision "
+                            + document.getCurrent().getId() + ")",
+                    (int) Math.min(replacementCount, Integer.MAX_VALUE), 0, duration, null);
+        }
+    }
+
+    /**
+     * Replaces matches already found by {@link #search} as one undoable edit,
+     * without scanning the document again, so a preview's results can be applied
+     * directly. {@code lines} are the lines the matches were found in (from
+     * {@link #getFileLines()} before the search); if the document has been edited
+     * or reloaded since, nothing is recorded and the result is unsuccessful.
+     */
+    public SearchResult applyReplace(List<Occurrence> matches, List<String> lines, String replacement) {
+        if (replacement == null) {
+            return new SearchResult(false, "Replacement target cannot be null", 0, 0, 0, null);
+        }
+
+        long startTime = System.nanoTime();
+        OccurrenceList columns = matches instanceof OccurrenceList list ? list : null;
+        synchronized (editLock) {
+            PieceTable document = editableDocument();
+            if (document.getCurrent().getLines() != lines) {
+                long duration = (System.nanoTime() - startTime) / 1000;
+                return new SearchResult(false, "Document changed since the matches were found; nothing replaced",
+                        0, 0, duration, null);
+            }
+            int[] changed = new int[16];
+            List<String> texts = new ArrayList<>();
+            StringBuilder out = new StringBuilder();
+            long replacementCount = 0;
+            int i = 0;
+            while (i < matches.size()) {
+                int lineNumber = columns != null ? columns.getLineNumber(i) : matches.get(i).getLineNumber();
+                String line = lines.get(lineNumber - 1);
+                out.setLength(0);
+                int copied = 0;
+                for (; i < matches.size(); i++) {
+                    int start;
+                    int length;
+                    if (columns != null) {
+                        if (columns.getLineNumber(i) != lineNumber) {
+                            break;
+                        }
+                        start = columns.getStartIndex(i);
+                        length = columns.getLength(i);
+                    } else {
+                        Occurrence occ = matches.get(i);
+                        if (occ.getLineNumber() != lineNumber) {
+                            break;
+                        }
+                        start = occ.getStartIndex();
+                        length = occ.getFullWord().length();
+                    }
+                    if (start >= copied && start + length <= line.length()) {
+                        out.append(line, copied, start).append(replacement);
+                        copied = start + length;
+                        replacementCount++;
+                    }
+                }
+                out.append(line, copied, line.length());
+                if (texts.size() == changed.length) {
+                    changed = Arrays.copyOf(changed, changed.length * 2);
+                }
+                changed[texts.size()] = lineNumber - 1;
+                texts.add(out.toString());
+            }
+
+            document.replaceLines(Arrays.copyOf(changed, texts.size()), texts);
+            long duration = (System.nanoTime() - startTime) / 1000;
+            return new SearchResult(true,
+                    texts.isEmpty() ? "No occurrences to replace"
+                            : "Replaced in " + texts.size() + " lines (revision "
+                            + document.getCurrent().getId() + ")",
+                    (int) Math.min(replacementCount, Integer.MAX_VALUE), 0, duration, null);
+        }
+    }
+
+    /**
+     * Records new text for some lines of the loaded document as one undoable edit.
+     * Line indexes are 0-based and strictly ascending. Returns false if no lines
+     * were given.
+     */
+    public boolean editLines(int[] lineIndexes, List<String> texts) {
+        synchronized (editLock) {
+            return editableDocument().replaceLines(lineIndexes, texts);
+        }
+    }
+
+    /** Reverts the last edit of the loaded document; returns false if there is none. */
+    public boolean undo() {
+        synchronized (editLock) {
+            return editableDocument().undo();
+        }
+    }
+
+    /** Re-applies the last undone edit; returns false if there is none. */
+    public boolean redo() {
+        synchronized (editLock) {
+            return editableDocument().redo();
+        }
+    }
+
+    /** The current revision of the loaded document: 0 as loaded, and a new id for every edit. */
+    public PieceTable.Revision getRevision() {
+        return currentRevision(textProcessor.getSnapshot());
+    }
+
+    /**
+     * Up to {@code limit} completions of a word prefix from the word index of the
+     * loaded file, most frequent first. Edits are not reflected until a reload.
+     */
+    public List<PrefixSearchEngine.Completion> suggest(String prefix, int limit) {
+        return textProcessor.getSnapshot().getPrefixEngine().complete(prefix, limit);
     }
 
     public FileStats getFileStats() {
+        IndexSnapshot snapshot = textProcessor.getSnapshot();
+        PieceTable.Revision revision = currentRevision(snapshot);
         return new FileStats(
-            currentFilePath,
-            textProcessor.getLines().size(),
-            getTotalCharacters(),
-            new File(currentFilePath).length()
+            snapshot.getPath(),
+            revision.size(),
+            (int) (snapshot.getCharacterCount() + revision.getCharacterDelta()),
+            new File(snapshot.getPath()).length()
         );
     }
 
+    public QueryCache.CacheStats getCacheStats() {
+        return queryCache.getStats();
+    }
+
     public boolean isFileLoaded() {
-        return currentFilePath != null && !textProcessor.getLines().isEmpty();
+        IndexSnapshot snapshot = textProcessor.getSnapshot();
+        return snapshot.getPath() != null && !snapshot.getLines().isEmpty();
     }
 
+    /** Lines of the loaded document with its current edits applied. */
     public List<String> getFileLines() {
-        return textProcessor.getLines();
+        return currentRevision(textProcessor.getSnapshot()).getLines();
     }
 
-    private List<Occurrence> searchPrefix(String keyword, boolean caseInsensitive) {
-        List<Occurrence> results = new ArrayList<>();
-        
-        for (int i = 0; i < textProcessor.getLines().size(); i++) {
-            String line = textProcessor.getLines().get(i);
+    /** The currently published snapshot, for callers that need a consistent view across calls. */
+    public IndexSnapshot getSnapshot() {
+        return textProcessor.getSnapshot();
+    }
+
+    /**
+     * The document for the currently published snapshot, replacing one left over
+     * from an earlier load. Loads publish their snapshot before taking the edit
+     * lock, so overlapping loads can finish their swaps out of order; checking
+     * the base here means edits always land on the file searches see. Callers
+     * hold {@code editLock}.
+     */
+    private PieceTable editableDocument() {
+        List<String> lines = textProcessor.getSnapshot().getLines();
+        if (document.getBase() != lines) {
+            document = new PieceTable(lines);
+        }
+        return document;
+    }
+
+    /**
+     * The edited revision of the snapshot's lines. A load replaces the document
+     * right after publishing its snapshot; until then the snapshot is read as loaded.
+     */
+    private PieceTable.Revision currentRevision(IndexSnapshot snapshot) {
+        PieceTable current = document;
+        return current.getBase() == snapshot.getLines() ? current.getCurrent()
+                : new PieceTable(snapshot.getLines()).getCurrent();
+    }
+
+    /** Cache generation that changes with every load and with every edit, undo or redo. */
+    private static long cacheGeneration(IndexSnapshot snapshot, PieceTable.Revision revision) {
+        return (snapshot.getGeneration() << REVISION_BITS) | revision.getId();
+    }
+
+    private LineScanner createScanner(String keyword, SearchMode mode, boolean caseInsensitive) {
+        return switch (mode) {
+            case PREFIX -> prefixScanner(keyword, caseInsensitive);
+            case SUBSTRING -> substringScanner(keyword, caseInsensitive);
+            case WHOLE_WORD -> wholeWordScanner(keyword, caseInsensitive);
+        };
+    }
+
+    private LineScanner prefixScanner(String keyword, boolean caseInsensitive) {
+        String searchKeyword = caseInsensitive ? keyword.toLowerCase() : keyword;
+
+        return (lineIndex, line, results) -> {
             String searchLine = caseInsensitive ? line.toLowerCase() : line;
-            String searchKeyword = caseInsensitive ? keyword.toLowerCase() : keyword;
             int index = 0;
 
             while ((index = searchLine.indexOf(searchKeyword, index)) != -1) {
@@ -185,76 +1001,224 @@ public class SearchService {
                     while (endIndex < line.length() && Character.isLetterOrDigit(line.charAt(endIndex))) {
                         endIndex++;
                     }
-                    String fullWord = line.substring(index, endIndex);
-                    results.add(new Occurrence(i + 1, index, fullWord));
+                    results.add(lineIndex + 1, index, endIndex - index);
                 }
                 index += keyword.length();
             }
-        }
-
-        return results;
+        };
     }
     
-    private List<Occurrence> searchSubstring(String keyword, boolean caseInsensitive) {
-        List<Occurrence> results = new ArrayList<>();
-        
-        for (int i = 0; i < textProcessor.getLines().size(); i++) {
-            String line = textProcessor.getLines().get(i);
+    private LineScanner substringScanner(String keyword, boolean caseInsensitive) {
+        String searchKeyword = caseInsensitive ? keyword.toLowerCase() : keyword;
+
+        return (lineIndex, line, results) -> {
             String searchLine = caseInsensitive ? line.toLowerCase() : line;
-            String searchKeyword = caseInsensitive ? keyword.toLowerCase() : keyword;
             int index = 0;
             
             while ((index = searchLine.indexOf(searchKeyword, index)) != -1) {
-                String originalWord = line.substring(index, 
-                    Math.min(index + keyword.length(), line.length()));
-                results.add(new Occurrence(i + 1, index, originalWord));
+                results.add(lineIndex + 1, index, Math.min(index + keyword.length(), line.length()) - index);
                 index += keyword.length();
             }
-        }
-        
-        return results;
+        };
     }
     
-    private List<Occurrence> searchWholeWord(String keyword, boolean caseInsensitive) {
-        List<Occurrence> results = new ArrayList<>();
-        
-        for (int i = 0; i < textProcessor.getLines().size(); i++) {
-            String line = textProcessor.getLines().get(i);
+    private LineScanner wholeWordScanner(String keyword, boolean caseInsensitive) {
+        String searchKeyword = caseInsensitive ? keyword.toLowerCase() : keyword;
+
+        return (lineIndex, line, results) -> {
             String searchLine = caseInsensitive ? line.toLowerCase() : line;
-            String searchKeyword = caseInsensitive ? keyword.toLowerCase() : keyword;
             int index = 0;
             
             while ((index = searchLine.indexOf(searchKeyword, index)) != -1) {
                 if (isWholeWordMatch(searchLine, index, searchKeyword.length())) {
-                    String originalWord = line.substring(index, 
-                        Math.min(index + keyword.length(), line.length()));
-                    results.add(new Occurrence(i + 1, index, originalWord));
+                    results.add(lineIndex + 1, index, Math.min(index + keyword.length(), line.length()) - index);
                 }
                 index += keyword.length();
             }
+        };
+    }
+
+    /**
+     * Runs a per-line scanner over the loaded lines. Small files are scanned on the
+     * calling thread; larger ones are split into contiguous line ranges scanned on
+     * the work-stealing pool. Every range yields results in (line, offset) order and
+     * ranges are concatenated in order, so the combined list needs no sorting.
+     */
+    private OccurrenceList scanLines(List<String> lines, LineScanner scanner, CancellationToken token)
+            throws Exception {
+        List<OccurrenceList> parts = runPartitioned(lines.size(), (from, to) -> {
+            OccurrenceList partial = new OccurrenceList(lines);
+            scanRange(lines, from, to, scanner, partial::add, token);
+            return partial;
+        });
+        return concat(lines, parts);
+    }
+
+    private static OccurrenceList concat(List<String> lines, List<OccurrenceList> parts) {
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        OccurrenceList results = new OccurrenceList(lines);
+        for (OccurrenceList part : parts) {
+            results.append(part);
         }
-        
         return results;
     }
-    
+
+    private long countLines(List<String> lines, KeywordMatcher matcher, CancellationToken token)
+            throws Exception {
+        List<Long> parts = runPartitioned(lines.size(), (from, to) -> {
+            long count = 0;
+            for (int i = from; i < to; i++) {
+                if ((i - from) % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                    break;
+                }
+                count += matcher.count(lines.get(i));
+            }
+            return count;
+        });
+
+        long total = 0;
+        for (long part : parts) {
+            total += part;
+        }
+        return total;
+    }
+
+    /**
+     * Applies a task to contiguous line ranges and returns the per-range outputs in
+     * line order. Below the threshold a single range runs on the calling thread.
+     */
+    private <T> List<T> runPartitioned(int lineCount, RangeTask<T> task) throws Exception {
+        if (parallelism <= 1 || lineCount < parallelThreshold) {
+            return Collections.singletonList(task.run(0, lineCount));
+        }
+
+        int partitions = Math.min(parallelism * PARTITIONS_PER_THREAD, lineCount);
+        List<Callable<T>> tasks = new ArrayList<>(partitions);
+        for (int p = 0; p < partitions; p++) {
+            int from = (int) ((long) lineCount * p / partitions);
+            int to = (int) ((long) lineCount * (p + 1) / partitions);
+            tasks.add(() -> task.run(from, to));
+        }
+
+        List<T> parts = new ArrayList<>(partitions);
+        SearchPool pool = acquireSearchPool();
+        try {
+            for (Future<T> future : pool.executor.invokeAll(tasks)) {
+                try {
+                    parts.add(future.get());
+                } catch (ExecutionException e) {
+                    throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
+            }
+        } finally {
+            releaseSearchPool(pool);
+        }
+        return parts;
+    }
+
+    private static void scanRange(List<String> lines, int from, int to, LineScanner scanner,
+                                  MatchSink results, CancellationToken token) {
+        for (int i = from; i < to; i++) {
+            if ((i - from) % CANCEL_CHECK_INTERVAL == 0 && token.shouldStop()) {
+                return;
+            }
+            scanner.scan(i, lines.get(i), results);
+        }
+    }
+
+    /** The current search pool, held until {@link #releaseSearchPool} so it is not shut down under its users. */
+    private synchronized SearchPool acquireSearchPool() {
+        if (searchPool == null) {
+            searchPool = new SearchPool(new ForkJoinPool(parallelism));
+        }
+        searchPool.users++;
+        return searchPool;
+    }
+
+    private synchronized void releaseSearchPool(SearchPool pool) {
+        if (--pool.users == 0 && pool != searchPool) {
+            pool.executor.shutdown();
+        }
+    }
+
+    /**
+     * Sets how many worker threads a single search may use. A value of 1 keeps
+     * every search on the calling thread. Searches already running keep the
+     * previous pool, which shuts down once the last of them is done.
+     */
+    public synchronized void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        if (parallelism != this.parallelism && searchPool != null) {
+            if (searchPool.users == 0) {
+                searchPool.executor.shutdown();
+            }
+            searchPool = null;
+        }
+        this.parallelism = parallelism;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the minimum number of lines before a search is split across threads.
+     */
+    public void setParallelThreshold(int parallelThreshold) {
+        if (parallelThreshold < 0) {
+            throw new IllegalArgumentException("Parallel threshold must be non-negative");
+        }
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    @FunctionalInterface
+    private interface LineScanner {
+        void scan(int lineIndex, String line, MatchSink results);
+    }
+
+    /** Receives the matches of one line as (1-based line number, start index, length). */
+    @FunctionalInterface
+    private interface MatchSink {
+        void add(int lineNumber, int startIndex, int length);
+    }
+
+    @FunctionalInterface
+    private interface RangeTask<T> {
+        T run(int from, int to) throws Exception;
+    }
+
+    /** A search pool and the number of operations using it; guarded by the service's lock. */
+    private static final class SearchPool {
+        private final ForkJoinPool executor;
+        private int users;
+
+        SearchPool(ForkJoinPool executor) {
+            this.executor = executor;
+        }
+    }
+
     private boolean isWholeWordMatch(String line, int start, int length) {
         boolean before = (start == 0) || !Character.isLetterOrDigit(line.charAt(start - 1));
         boolean after = (start + length == line.length()) || 
                        !Character.isLetterOrDigit(line.charAt(start + length));
         return before && after;
     }
-    
-    private int getTotalCharacters() {
-        return textProcessor.getLines().stream().mapToInt(String::length).sum();
-    }
-    
-    private String escapeRegex(String s) {
-        return s.replaceAll("[^a-zA-Z0-9]", "\\\\$0");
-    }
 
     public enum SearchMode {
         PREFIX, SUBSTRING, WHOLE_WORD
     }
+
+    /** One search of a {@link #searchBatch} call. */
+    public record BatchQuery(String keyword, SearchMode mode, boolean caseInsensitive) {
+    }
     
     public static class SearchResult {
         public boolean success;
@@ -263,6 +1227,10 @@ public class SearchService {
         public long fileSize;
         public long executionTimeUs;
         public List<Occurrence> results;
+        public int[] lineNumbers;
+        public double[] scores;
+        public Map<String, Long> replacementCounts;
+        public boolean truncated;
         
         public SearchResult(boolean success, String message, int count, long fileSize, 
                           long executionTimeUs, List<Occurrence> results) {
@@ -274,6 +1242,12 @@ public class SearchService {
             this.results = results;
         }
 
+        public SearchResult(boolean success, String message, int count, long fileSize,
+                          long executionTimeUs, List<Occurrence> results, int[] lineNumbers) {
+            this(success, message, count, fileSize, executionTimeUs, results);
+            this.lineNumbers = lineNumbers;
+        }
+
         public String getMessage() {
             return message;
         }
@@ -282,6 +1256,21 @@ public class SearchService {
             return results;
         }
 
+        /** Matching line numbers for line-level queries, or {@code null}. */
+        public int[] getLineNumbers() {
+            return lineNumbers;
+        }
+
+        /** Relevance scores parallel to the line numbers of ranked queries, or {@code null}. */
+        public double[] getScores() {
+            return scores;
+        }
+
+        /** Replacements per mapping key, in mapping order, for dictionary replaces; otherwise {@code null}. */
+        public Map<String, Long> getReplacementCounts() {
+            return replacementCounts;
+        }
+
         public int getCount() {
             return count;
         }
@@ -297,6 +1286,11 @@ public class SearchService {
         public boolean isSuccess() {
             return success;
         }
+
+        /** Whether the operation was cancelled or ran out of time before finishing. */
+        public boolean isTruncated() {
+            return truncated;
+        }
     }
     
     public static class FileStats {